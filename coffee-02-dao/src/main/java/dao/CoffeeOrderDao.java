@@ -2,5 +2,67 @@ package dao;
 
 import entities.CoffeeOrder;
 
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 public interface CoffeeOrderDao extends DAO<CoffeeOrder> {
+    /**
+     * Saves all CoffeeOrders with assigned ids (id > 0) in the database in one batch
+     *
+     * @param coffeeOrderList determines the entities to save
+     * @return the same list or empty list if coffeeOrderList is null or empty
+     * @throws SQLException if can't save entities
+     * @throws IllegalArgumentException if an entity has no assigned id
+     */
+    List<CoffeeOrder> saveAll(List<CoffeeOrder> coffeeOrderList) throws SQLException;
+
+    /**
+     * removes from the database all CoffeeOrders with id in ids
+     *
+     * @param ids determines ids of CoffeeOrders in database
+     * @return returns the number of deleted rows from the database or
+     *         0 if ids is null or empty
+     * @throws SQLException if there is an error deleting entities from the database
+     */
+    int deleteAll(Collection<Integer> ids) throws SQLException;
+
+    /**
+     * returns all CoffeeOrders ordered by id as a stream read from the database row by row,
+     * so the whole table is never held in memory. The stream holds the connection
+     * of the current thread until it is closed: it must be used in try-with-resources,
+     * and no other statement can be executed on the connection while it is open.
+     * SQLException while reading rows is thrown as dao.jdbc.StreamingException.
+     *
+     * @return stream of CoffeeOrders
+     * @throws SQLException if the query can't be executed
+     */
+    Stream<CoffeeOrder> streamAll() throws SQLException;
+
+    /**
+     * returns a page of CoffeeOrders ordered from new to old by order_date and id,
+     * that are older than the order with key (orderDate, id). The page is found by
+     * the index on order_date, so any page costs the same as the first one
+     *
+     * @param orderDate determines order_date of the last order of the previous page
+     *                  or null for the first page
+     * @param id determines id of the last order of the previous page, ignored if orderDate is null
+     * @param pageSize determines the maximum number of orders in the page
+     * @return a list of CoffeeOrders or empty list if there are no older orders
+     * @throws SQLException if there is an error connecting to the database
+     */
+    List<CoffeeOrder> getPageBefore(Timestamp orderDate, int id, int pageSize) throws SQLException;
+
+    /**
+     * returns the oldest CoffeeOrders with order_date before orderDate ordered from old to new
+     * by order_date and id
+     *
+     * @param orderDate determines the date the orders are older than
+     * @param limit determines the maximum number of orders
+     * @return a list of CoffeeOrders or empty list if there are no such orders
+     * @throws SQLException if there is an error connecting to the database
+     */
+    List<CoffeeOrder> getOlderThan(Timestamp orderDate, int limit) throws SQLException;
 }
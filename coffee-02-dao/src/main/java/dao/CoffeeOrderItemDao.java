@@ -4,7 +4,9 @@ import entities.CoffeeOrderItem;
 
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface CoffeeOrderItemDao extends DAO<CoffeeOrderItem> {
     /**
@@ -17,5 +19,57 @@ public interface CoffeeOrderItemDao extends DAO<CoffeeOrderItem> {
      * @throws SQLException if there is an error connecting to the database
      */
     List<CoffeeOrderItem> getAllForOrderId(Serializable orderId) throws SQLException;
-}
 
+    /**
+     * get all records of CoffeeOrderItem from DB for CoffeeOrders with id in orderIds
+     *
+     * @param orderIds determines ids for CoffeeOrders
+     * @return a list of CoffeeOrderItems ordered by order_id and id or
+     *         empty list if orderIds is null or empty or there are no entries found
+     * @throws SQLException if there is an error connecting to the database
+     */
+    List<CoffeeOrderItem> getAllForOrderIds(Collection<Integer> orderIds) throws SQLException;
+
+    /**
+     * Saves all CoffeeOrderItems in the database in one batch, with the ids of the entities
+     * if all of them are assigned (id > 0) or with generated ids
+     *
+     * @param coffeeOrderItemList determines the entities to save
+     * @return the same list with not null ids of saved entities or
+     *         empty list if coffeeOrderItemList is null or empty
+     * @throws SQLException if can't save entities
+     */
+    List<CoffeeOrderItem> saveAll(List<CoffeeOrderItem> coffeeOrderItemList) throws SQLException;
+
+    /**
+     * removes from the database all CoffeeOrderItems of CoffeeOrder with id = orderId
+     * in one statement
+     *
+     * @param orderId determines id for CoffeeOrder
+     * @return returns the number of deleted rows from the database
+     * @throws SQLException if there is an error deleting entities from the database
+     */
+    int deleteAllForOrderId(Serializable orderId) throws SQLException;
+
+    /**
+     * removes from the database all CoffeeOrderItems of CoffeeOrders with id in orderIds
+     *
+     * @param orderIds determines ids for CoffeeOrders
+     * @return returns the number of deleted rows from the database or
+     *         0 if orderIds is null or empty
+     * @throws SQLException if there is an error deleting entities from the database
+     */
+    int deleteAllForOrderIds(Collection<Integer> orderIds) throws SQLException;
+
+    /**
+     * returns all CoffeeOrderItems ordered by order_id and id as a stream read from
+     * the database row by row, so the whole table is never held in memory. The stream holds the connection
+     * of the current thread until it is closed: it must be used in try-with-resources,
+     * and no other statement can be executed on the connection while it is open.
+     * SQLException while reading rows is thrown as dao.jdbc.StreamingException.
+     *
+     * @return stream of CoffeeOrderItems
+     * @throws SQLException if the query can't be executed
+     */
+    Stream<CoffeeOrderItem> streamAll() throws SQLException;
+}
@@ -4,7 +4,9 @@ import entities.CoffeeType;
 import entities.enums.DisabledFlag;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface CoffeeTypeDao extends DAO<CoffeeType> {
     /**
@@ -28,4 +30,14 @@ public interface CoffeeTypeDao extends DAO<CoffeeType> {
      * @throws SQLException if there is an error connecting to the database
      */
     List<CoffeeType> getAllForDisabledFlag(DisabledFlag disabledFlag) throws SQLException;
+
+    /**
+     * get all records of CoffeeTypes from DB with id in ids in one query
+     *
+     * @param ids determines ids of CoffeeTypes
+     * @return a map of found CoffeeTypes by id or
+     *         empty map if ids is null or empty or there are no entries
+     * @throws SQLException if there is an error connecting to the database
+     */
+    Map<Integer, CoffeeType> getAllByIds(Collection<Integer> ids) throws SQLException;
 }
@@ -0,0 +1,19 @@
+package dao;
+
+import java.sql.SQLException;
+
+public interface IdAllocator {
+    String COFFEE_ORDER = "CoffeeOrder";
+    String COFFEE_ORDER_ITEM = "CoffeeOrderItem";
+
+    /**
+     * returns the next id of the sequence. Ids are reserved in the database by blocks,
+     * so most calls don't go to the database. An id is never returned twice, ids of
+     * a block not used before a restart are skipped.
+     *
+     * @param sequence determines the name of the sequence, e.g. COFFEE_ORDER
+     * @return a new id
+     * @throws SQLException if a block of ids can't be reserved
+     */
+    int nextId(String sequence) throws SQLException;
+}
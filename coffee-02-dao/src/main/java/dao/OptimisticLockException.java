@@ -0,0 +1,14 @@
+package dao;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown by update when the row was changed or deleted after the entity was read:
+ * no row with the entity id and version was found
+ */
+public class OptimisticLockException extends SQLException {
+    public OptimisticLockException(String entityName, Object id, int version) {
+        super(entityName + " with id: " + id + " and version: " + version
+                + " was changed or deleted by another transaction");
+    }
+}
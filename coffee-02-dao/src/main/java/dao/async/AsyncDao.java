@@ -0,0 +1,56 @@
+package dao.async;
+
+import dao.DAO;
+
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade over a DAO, the calls run on DaoExecutor:
+ * <pre>
+ * AsyncDao&lt;CoffeeType, CoffeeTypeDao&gt; asyncDao = AsyncDao.of(coffeeTypeDao);
+ * CompletableFuture&lt;List&lt;CoffeeType&gt;&gt; list = asyncDao.call(dao -&gt; dao.getAll());
+ * </pre>
+ */
+public class AsyncDao<T, D extends DAO<T>> {
+    private final D dao;
+    private final DaoExecutor executor;
+
+    private AsyncDao(D dao, DaoExecutor executor) {
+        this.dao = dao;
+        this.executor = executor;
+    }
+
+    public static <T, D extends DAO<T>> AsyncDao<T, D> of(D dao) {
+        return new AsyncDao<>(dao, DaoExecutor.getInstance());
+    }
+
+    public CompletableFuture<T> save(T t) {
+        return call(dao -> dao.save(t));
+    }
+
+    public CompletableFuture<T> get(Serializable id) {
+        return call(dao -> dao.get(id));
+    }
+
+    public CompletableFuture<Void> update(T t) {
+        return call(dao -> {
+            dao.update(t);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Integer> delete(Serializable id) {
+        return call(dao -> dao.delete(id));
+    }
+
+    /**
+     * calls any method of the DAO on DaoExecutor
+     *
+     * @param function determines the call of the DAO
+     * @return future completed with the result of the call
+     */
+    public <R> CompletableFuture<R> call(DaoFunction<D, R> function) {
+        return executor.submit(() -> function.apply(dao));
+    }
+}
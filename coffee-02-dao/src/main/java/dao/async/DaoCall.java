@@ -0,0 +1,12 @@
+package dao.async;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface DaoCall<R> {
+    /**
+     * @return the result of the call
+     * @throws SQLException if there is an error in the database
+     */
+    R call() throws SQLException;
+}
@@ -0,0 +1,107 @@
+package dao.async;
+
+import db.ConnectionContext;
+import db.ConnectionScope;
+import db.DbProperties;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor for the database work. It has no more threads than the connection pool
+ * has connections, so the work waits in the queue of the executor, not for a connection.
+ * When the queue is full the work runs on the calling thread.
+ */
+public class DaoExecutor {
+    private static Logger log = Logger.getLogger(DaoExecutor.class);
+    private static volatile DaoExecutor INSTANCE = null;
+
+    private final ThreadPoolExecutor executor;
+
+    private DaoExecutor() {
+        int threads = DbProperties.getInt("async.threads", DbProperties.getInt("pool.maxPoolSize", 20));
+        int queueCapacity = DbProperties.getInt("async.queueCapacity", 100);
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new DaoThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+
+        log.info(String.format("Dao executor: threads %d, queue %d", threads, queueCapacity));
+    }
+
+    public static DaoExecutor getInstance() {
+        DaoExecutor instance = INSTANCE;
+        if (instance == null) {
+            synchronized (DaoExecutor.class) {
+                instance = INSTANCE;
+                if (instance == null) {
+                    INSTANCE = instance = new DaoExecutor();
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    /**
+     * Runs the call on a thread of the executor with the routing of the calling thread:
+     * read-only calls go to the replica, reads after a write go to the primary. The worker
+     * gets its own connection and returns it when the call is done. A call made inside
+     * a transaction runs on the calling thread to be a part of the transaction.
+     *
+     * @param call determines the database work
+     * @return future completed with the result of the call, or exceptionally
+     *         with the SQLException or RuntimeException of the call
+     */
+    public <R> CompletableFuture<R> submit(DaoCall<R> call) {
+        ConnectionContext context = ConnectionContext.capture();
+        CompletableFuture<R> future = new CompletableFuture<>();
+        if (context.isInTransaction()) {
+            complete(future, call);
+            return future;
+        }
+        executor.execute(() -> {
+            CompletableFuture<R> done = new CompletableFuture<>();
+            try (ConnectionScope scope = context.open()) {
+                complete(done, call);
+            }
+            // the connection is back in the pool when the caller gets the result
+            done.whenComplete((result, error) -> {
+                if (error == null) {
+                    future.complete(result);
+                } else {
+                    future.completeExceptionally(error);
+                }
+            });
+        });
+        return future;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static <R> void complete(CompletableFuture<R> future, DaoCall<R> call) {
+        try {
+            future.complete(call.call());
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private static class DaoThreadFactory implements ThreadFactory {
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "dao-executor-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package dao.async;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface DaoFunction<D, R> {
+    /**
+     * @param dao determines the DAO to call
+     * @return the result of the call
+     * @throws SQLException if there is an error in the database
+     */
+    R apply(D dao) throws SQLException;
+}
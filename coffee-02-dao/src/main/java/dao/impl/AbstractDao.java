@@ -1,17 +1,137 @@
 package dao.impl;
 
+import dao.jdbc.JdbcExecutor;
+import dao.jdbc.SqlStatement;
+import dao.jdbc.StatementMetrics;
 import db.ConnectionManager;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public abstract class AbstractDao {
+    protected static final int MAX_IN_LIST_SIZE = 1024;
+    // makes MySQL driver stream the rows one by one instead of reading the whole ResultSet
+    protected static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    // driver statements behind the pool proxies: a prepare that gets one of them again
+    // is served from the statement cache of the pool, the entries go with the statements
+    private static final Set<PreparedStatement> PREPARED_STATEMENTS =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private static final AtomicLong STATEMENT_CACHE_HITS = new AtomicLong();
+    private static final AtomicLong STATEMENT_CACHE_MISSES = new AtomicLong();
+
+    static {
+        // every statement of the DAOs is counted by name in StatementMetrics
+        JdbcExecutor.addListener(StatementMetrics.getInstance());
+    }
+
+    // statements are closed after every execution and cached by the pool (pool.maxStatements)
+    // per physical connection, so the next prepare of the same SQL reuses the statement
+    protected final JdbcExecutor jdbc = new JdbcExecutor(
+            (sql, autoGeneratedKeys) -> prepareStatement(sql.getSql(), autoGeneratedKeys));
 
-public abstract class AbstractDao{
     protected PreparedStatement prepareStatement(String query) throws SQLException {
-        return ConnectionManager.getConnection().prepareStatement(query);
+        return countReuse(ConnectionManager.getConnection().prepareStatement(query));
     }
 
     protected PreparedStatement prepareStatement(String query, int flag) throws SQLException {
-        return ConnectionManager.getConnection().prepareStatement(query, flag);
+        return countReuse(ConnectionManager.getConnection().prepareStatement(query, flag));
+    }
+
+    /**
+     * returns the number of prepareStatement calls served from the statement cache of the pool
+     *
+     * @return the number of statement cache hits since start
+     */
+    public static long getStatementCacheHits() {
+        return STATEMENT_CACHE_HITS.get();
+    }
+
+    /**
+     * returns the number of prepareStatement calls that had to prepare a new statement
+     *
+     * @return the number of statement cache misses since start
+     */
+    public static long getStatementCacheMisses() {
+        return STATEMENT_CACHE_MISSES.get();
     }
 
+    private static PreparedStatement countReuse(PreparedStatement ps) throws SQLException {
+        if (PREPARED_STATEMENTS.add(ps.unwrap(PreparedStatement.class))) {
+            STATEMENT_CACHE_MISSES.incrementAndGet();
+        } else {
+            STATEMENT_CACHE_HITS.incrementAndGet();
+        }
+        return ps;
+    }
+
+    /**
+     * Splits ids into distinct chunks no longer than MAX_IN_LIST_SIZE for "IN (...)" queries
+     *
+     * @param ids determines the ids for the IN list
+     * @return list of chunks, empty list if ids is null or empty
+     */
+    protected static List<List<Integer>> inListChunks(Collection<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return chunks;
+        }
+        List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        for (int from = 0; from < distinctIds.size(); from += MAX_IN_LIST_SIZE) {
+            chunks.add(distinctIds.subList(from, Math.min(from + MAX_IN_LIST_SIZE, distinctIds.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * Fills the "%s" of sqlPattern with IN list placeholders. The number of placeholders is
+     * rounded up to a power of two, so only a few SQL variants get into the statement cache.
+     *
+     * @param sqlPattern determines SQL with one "%s" in place of the IN list
+     * @param count determines the number of ids in the IN list
+     * @return statement with the name of sqlPattern and the placeholders in SQL
+     */
+    protected static SqlStatement inListSql(SqlStatement sqlPattern, int count) {
+        int size = inListSize(count);
+        StringBuilder placeholders = new StringBuilder("?");
+        for (int i = 1; i < size; i++) {
+            placeholders.append(",?");
+        }
+        return SqlStatement.of(sqlPattern.getName(), String.format(sqlPattern.getSql(), placeholders));
+    }
+
+    /**
+     * Binds ids to the IN list placeholders made by inListSql, the padding placeholders
+     * repeat the last id
+     *
+     * @param ps determines the statement prepared from inListSql
+     * @param fromIndex determines the index of the first IN list placeholder
+     * @param ids determines the ids to bind
+     * @return the index of the first parameter after the IN list
+     * @throws SQLException if the parameters can't be bound
+     */
+    protected static int bindInList(PreparedStatement ps, int fromIndex, List<Integer> ids)
+            throws SQLException {
+        int size = inListSize(ids.size());
+        for (int i = 0; i < size; i++) {
+            ps.setInt(fromIndex + i, ids.get(Math.min(i, ids.size() - 1)));
+        }
+        return fromIndex + size;
+    }
+
+    private static int inListSize(int count) {
+        int size = 1;
+        while (size < count) {
+            size <<= 1;
+        }
+        return size;
+    }
 }
@@ -1,36 +1,57 @@
 package dao.impl;
 
 import dao.CoffeeOrderDao;
+import dao.jdbc.ParameterBinder;
+import dao.jdbc.SqlStatement;
 import entities.CoffeeOrder;
-import org.apache.log4j.Logger;
 import org.springframework.stereotype.Repository;
 
 import java.io.Serializable;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public class CoffeeOrderDaoImpl extends AbstractDao implements CoffeeOrderDao {
-    private static Logger log = Logger.getLogger(CoffeeOrderDaoImpl.class);
-
-    private static final String SAVE_COFFEE_ORDER_SQL =
-            "INSERT INTO CoffeeOrder (order_date, `name`, delivery_address, cost) VALUES (?,?,?,?)";
-    private static final String GET_COFFEE_ORDER_BY_ID_SQL = "SELECT * FROM CoffeeOrder WHERE id=?";
-    private static final String UPDATE_COFFEE_ORDER_BY_ID_SQL =
-            "UPDATE CoffeeOrder SET order_date=?, `name`=?, delivery_address=?, cost=? WHERE id=?";
-    private static final String DELETE_COFFEE_ORDER_BY_ID_SQL = "DELETE FROM CoffeeOrder WHERE id=?";
-
-    private PreparedStatement psSave = null;
-    private PreparedStatement psGet = null;
-    private PreparedStatement psUpdate = null;
-    private PreparedStatement psDelete = null;
+    private static final SqlStatement SAVE_COFFEE_ORDER_SQL = SqlStatement.of("SAVE_COFFEE_ORDER_SQL",
+            "INSERT INTO CoffeeOrder (order_date, `name`, delivery_address, cost) VALUES (?,?,?,?)");
+    private static final SqlStatement SAVE_COFFEE_ORDER_WITH_ID_SQL = SqlStatement.of("SAVE_COFFEE_ORDER_WITH_ID_SQL",
+            "INSERT INTO CoffeeOrder (order_date, `name`, delivery_address, cost, id) VALUES (?,?,?,?,?)");
+    private static final SqlStatement GET_COFFEE_ORDER_BY_ID_SQL = SqlStatement.of("GET_COFFEE_ORDER_BY_ID_SQL",
+            "SELECT * FROM CoffeeOrder WHERE id=?");
+    private static final SqlStatement UPDATE_COFFEE_ORDER_BY_ID_SQL =
+            SqlStatement.of("UPDATE_COFFEE_ORDER_BY_ID_SQL",
+                    "UPDATE CoffeeOrder SET order_date=?, `name`=?, delivery_address=?, cost=? WHERE id=?");
+    private static final SqlStatement DELETE_COFFEE_ORDER_BY_ID_SQL =
+            SqlStatement.of("DELETE_COFFEE_ORDER_BY_ID_SQL",
+                    "DELETE FROM CoffeeOrder WHERE id=?");
+    private static final SqlStatement STREAM_ALL_COFFEE_ORDER_SQL = SqlStatement.of("STREAM_ALL_COFFEE_ORDER_SQL",
+            "SELECT * FROM CoffeeOrder ORDER BY id");
+    private static final SqlStatement GET_FIRST_PAGE_COFFEE_ORDER_SQL =
+            SqlStatement.of("GET_FIRST_PAGE_COFFEE_ORDER_SQL",
+                    "SELECT * FROM CoffeeOrder ORDER BY order_date DESC, id DESC LIMIT ?");
+    // "order_date <= ?" gives the range on the order_date index, the rest skips the previous page
+    private static final SqlStatement GET_PAGE_BEFORE_COFFEE_ORDER_SQL =
+            SqlStatement.of("GET_PAGE_BEFORE_COFFEE_ORDER_SQL",
+                    "SELECT * FROM CoffeeOrder WHERE order_date <= ? AND (order_date < ? OR id < ?)" +
+                            " ORDER BY order_date DESC, id DESC LIMIT ?");
+    private static final SqlStatement GET_OLDER_THAN_COFFEE_ORDER_SQL =
+            SqlStatement.of("GET_OLDER_THAN_COFFEE_ORDER_SQL",
+                    "SELECT * FROM CoffeeOrder WHERE order_date < ? ORDER BY order_date, id LIMIT ?");
+    private static final SqlStatement DELETE_ALL_COFFEE_ORDER_BY_IDS_SQL =
+            SqlStatement.of("DELETE_ALL_COFFEE_ORDER_BY_IDS_SQL",
+                    "DELETE FROM CoffeeOrder WHERE id IN (%s)");
 
     public CoffeeOrderDaoImpl() {}
 
     /**
-     * Saves the entity type <CoffeeOrder> in the database
+     * Saves the entity type <CoffeeOrder> in the database with the id of the entity
+     * if it is assigned (id > 0) or with a generated id
      *
      * @param coffeeOrder determine entity with type <CoffeeOrder>
      * @return saved entity with not null id
@@ -41,26 +62,44 @@ public class CoffeeOrderDaoImpl extends AbstractDao implements CoffeeOrderDao {
         if (coffeeOrder == null) {
             return null;
         }
+        if (coffeeOrder.getId() > 0) {
+            jdbc.update(SAVE_COFFEE_ORDER_WITH_ID_SQL, ps -> bindWithId(ps, coffeeOrder));
+            return coffeeOrder;
+        }
 
-        if (psSave == null) {
-            psSave = psSave = prepareStatement(SAVE_COFFEE_ORDER_SQL, Statement.RETURN_GENERATED_KEYS);
+        Integer id = jdbc.insert(SAVE_COFFEE_ORDER_SQL, ps -> {
+            ps.setTimestamp(1, coffeeOrder.getOrderDate());
+            ps.setString(2, coffeeOrder.getCustomerName());
+            ps.setString(3, coffeeOrder.getDeliveryAddress());
+            ps.setDouble(4, coffeeOrder.getCost());
+        });
+        if (id != null) {
+            coffeeOrder.setId(id);
         }
-        psSave.setTimestamp(1, coffeeOrder.getOrderDate());
-        psSave.setString(2, coffeeOrder.getCustomerName());
-        psSave.setString(3, coffeeOrder.getDeliveryAddress());
-        psSave.setDouble(4, coffeeOrder.getCost());
-        psSave.executeUpdate();
-
-        try (ResultSet rs = psSave.getGeneratedKeys()) {
-            if (rs.next()) {
-                coffeeOrder.setId(rs.getInt(1));
+        return coffeeOrder;
+    }
+
+    /**
+     * Saves all CoffeeOrders with assigned ids (id > 0) in the database in one batch
+     *
+     * @param coffeeOrderList determines the entities to save
+     * @return the same list or empty list if coffeeOrderList is null or empty
+     * @throws SQLException if can't save entities
+     * @throws IllegalArgumentException if an entity has no assigned id
+     */
+    @Override
+    public List<CoffeeOrder> saveAll(List<CoffeeOrder> coffeeOrderList) throws SQLException {
+        if (coffeeOrderList == null || coffeeOrderList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        for (CoffeeOrder coffeeOrder : coffeeOrderList) {
+            if (coffeeOrder.getId() <= 0) {
+                throw new IllegalArgumentException("CoffeeOrder without assigned id: " + coffeeOrder);
             }
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psSave + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
         }
-        return coffeeOrder;
+
+        jdbc.batchUpdate(SAVE_COFFEE_ORDER_WITH_ID_SQL, coffeeOrderList, this::bindWithId);
+        return coffeeOrderList;
     }
 
     /**
@@ -73,22 +112,8 @@ public class CoffeeOrderDaoImpl extends AbstractDao implements CoffeeOrderDao {
      */
     @Override
     public CoffeeOrder get(Serializable id) throws SQLException {
-        if (psGet == null) {
-            psGet = prepareStatement(GET_COFFEE_ORDER_BY_ID_SQL);
-        }
-        psGet.setInt(1, (int) id);
-        psGet.executeQuery();
-
-        try (ResultSet rs = psGet.getResultSet()) {
-            if (rs.next()) {
-                return populateEntity(rs);
-            }
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psGet + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
-        }
-        return null;
+        return jdbc.queryForObject(GET_COFFEE_ORDER_BY_ID_SQL, ps -> ps.setInt(1, (int) id),
+                this::populateEntity);
     }
 
     /**
@@ -103,21 +128,13 @@ public class CoffeeOrderDaoImpl extends AbstractDao implements CoffeeOrderDao {
         if (coffeeOrder == null) {
             return;
         }
-        try {
-            if (psUpdate == null) {
-                psUpdate = prepareStatement(UPDATE_COFFEE_ORDER_BY_ID_SQL);
-            }
-            psUpdate.setInt(5, coffeeOrder.getId());
-            psUpdate.setTimestamp(1, coffeeOrder.getOrderDate());
-            psUpdate.setString(2, coffeeOrder.getCustomerName());
-            psUpdate.setString(3, coffeeOrder.getDeliveryAddress());
-            psUpdate.setDouble(4, coffeeOrder.getCost());
-            psUpdate.executeUpdate();
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psUpdate + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
-        }
+        jdbc.update(UPDATE_COFFEE_ORDER_BY_ID_SQL, ps -> {
+            ps.setInt(5, coffeeOrder.getId());
+            ps.setTimestamp(1, coffeeOrder.getOrderDate());
+            ps.setString(2, coffeeOrder.getCustomerName());
+            ps.setString(3, coffeeOrder.getDeliveryAddress());
+            ps.setDouble(4, coffeeOrder.getCost());
+        });
     }
 
     /**
@@ -129,17 +146,87 @@ public class CoffeeOrderDaoImpl extends AbstractDao implements CoffeeOrderDao {
      */
     @Override
     public int delete(Serializable id) throws SQLException {
-        try {
-            if (psDelete == null) {
-                psDelete = prepareStatement(DELETE_COFFEE_ORDER_BY_ID_SQL);
-            }
-            psDelete.setInt(1, (int) id);
-            return psDelete.executeUpdate();
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psDelete + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
+        return jdbc.update(DELETE_COFFEE_ORDER_BY_ID_SQL, ps -> ps.setInt(1, (int) id));
+    }
+
+    /**
+     * removes from the database all CoffeeOrders with id in ids
+     *
+     * @param ids determines ids of CoffeeOrders in database
+     * @return returns the number of deleted rows from the database or
+     *         0 if ids is null or empty
+     * @throws SQLException if there is an error deleting entities from the database
+     */
+    @Override
+    public int deleteAll(Collection<Integer> ids) throws SQLException {
+        int deletedRecords = 0;
+        for (List<Integer> chunk : inListChunks(ids)) {
+            deletedRecords += jdbc.update(inListSql(DELETE_ALL_COFFEE_ORDER_BY_IDS_SQL, chunk.size()),
+                    ps -> bindInList(ps, 1, chunk));
+        }
+        return deletedRecords;
+    }
+
+    /**
+     * returns a page of CoffeeOrders ordered from new to old by order_date and id,
+     * that are older than the order with key (orderDate, id)
+     *
+     * @param orderDate determines order_date of the last order of the previous page
+     *                  or null for the first page
+     * @param id determines id of the last order of the previous page, ignored if orderDate is null
+     * @param pageSize determines the maximum number of orders in the page
+     * @return a list of CoffeeOrders or empty list if there are no older orders
+     * @throws SQLException if there is an error connecting to the database
+     */
+    @Override
+    public List<CoffeeOrder> getPageBefore(Timestamp orderDate, int id, int pageSize) throws SQLException {
+        if (orderDate == null) {
+            return jdbc.queryForList(GET_FIRST_PAGE_COFFEE_ORDER_SQL, ps -> ps.setInt(1, pageSize),
+                    this::populateEntity);
         }
+        return jdbc.queryForList(GET_PAGE_BEFORE_COFFEE_ORDER_SQL, ps -> {
+            ps.setTimestamp(1, orderDate);
+            ps.setTimestamp(2, orderDate);
+            ps.setInt(3, id);
+            ps.setInt(4, pageSize);
+        }, this::populateEntity);
+    }
+
+    /**
+     * returns the oldest CoffeeOrders with order_date before orderDate ordered from old to new
+     * by order_date and id
+     *
+     * @param orderDate determines the date the orders are older than
+     * @param limit determines the maximum number of orders
+     * @return a list of CoffeeOrders or empty list if there are no such orders
+     * @throws SQLException if there is an error connecting to the database
+     */
+    @Override
+    public List<CoffeeOrder> getOlderThan(Timestamp orderDate, int limit) throws SQLException {
+        return jdbc.queryForList(GET_OLDER_THAN_COFFEE_ORDER_SQL, ps -> {
+            ps.setTimestamp(1, orderDate);
+            ps.setInt(2, limit);
+        }, this::populateEntity);
+    }
+
+    /**
+     * returns all CoffeeOrders ordered by id as a stream read from the database row by row
+     *
+     * @return stream of CoffeeOrders, must be closed after use
+     * @throws SQLException if the query can't be executed
+     */
+    @Override
+    public Stream<CoffeeOrder> streamAll() throws SQLException {
+        return jdbc.queryForStream(STREAM_ALL_COFFEE_ORDER_SQL, ParameterBinder.NONE, this::populateEntity,
+                STREAMING_FETCH_SIZE);
+    }
+
+    private void bindWithId(PreparedStatement ps, CoffeeOrder coffeeOrder) throws SQLException {
+        ps.setTimestamp(1, coffeeOrder.getOrderDate());
+        ps.setString(2, coffeeOrder.getCustomerName());
+        ps.setString(3, coffeeOrder.getDeliveryAddress());
+        ps.setDouble(4, coffeeOrder.getCost());
+        ps.setInt(5, coffeeOrder.getId());
     }
 
     private CoffeeOrder populateEntity(ResultSet rs) throws SQLException {
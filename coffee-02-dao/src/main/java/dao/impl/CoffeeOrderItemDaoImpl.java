@@ -1,43 +1,59 @@
 package dao.impl;
 
 import dao.CoffeeOrderItemDao;
+import dao.jdbc.ParameterBinder;
+import dao.jdbc.SqlStatement;
 import entities.CoffeeOrderItem;
-import org.apache.log4j.Logger;
 import org.springframework.stereotype.Repository;
 
 import java.io.Serializable;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
 
 @Repository
 public class CoffeeOrderItemDaoImpl extends AbstractDao implements CoffeeOrderItemDao {
-    private static Logger log = Logger.getLogger(CoffeeOrderItemDaoImpl.class);
-
-    private static final String SAVE_COFFEE_ORDER_ITEM_SQL =
-            "INSERT INTO CoffeeOrderItem (type_id, order_id, quantity) VALUES (?,?,?)";
-    private static final String GET_COFFEE_ORDER_ITEM_BY_ID_SQL =
-            "SELECT * FROM CoffeeOrderItem WHERE id=?";
-    private static final String GET_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_ID_SQL =
-            "SELECT * FROM CoffeeOrderItem WHERE order_id=?";
-    private static final String UPDATE_COFFEE_ORDER_ITEM_BY_ID_SQL =
-            "UPDATE CoffeeOrderItem SET type_id=?, order_id=?, quantity=? WHERE id=?";
-    private static final String DELETE_COFFEE_ORDER_ITEM_BY_ID_SQL =
-            "DELETE FROM CoffeeOrderItem WHERE id=?";
-
-    private PreparedStatement psSave = null;
-    private PreparedStatement psGet = null;
-    private PreparedStatement psGetAllForOrderId = null;
-    private PreparedStatement psUpdate = null;
-    private PreparedStatement psDelete = null;
+    private static final SqlStatement SAVE_COFFEE_ORDER_ITEM_SQL =
+            SqlStatement.of("SAVE_COFFEE_ORDER_ITEM_SQL",
+                    "INSERT INTO CoffeeOrderItem (type_id, order_id, quantity) VALUES (?,?,?)");
+    private static final SqlStatement SAVE_COFFEE_ORDER_ITEM_WITH_ID_SQL =
+            SqlStatement.of("SAVE_COFFEE_ORDER_ITEM_WITH_ID_SQL",
+                    "INSERT INTO CoffeeOrderItem (type_id, order_id, quantity, id) VALUES (?,?,?,?)");
+    private static final SqlStatement GET_COFFEE_ORDER_ITEM_BY_ID_SQL =
+            SqlStatement.of("GET_COFFEE_ORDER_ITEM_BY_ID_SQL",
+                    "SELECT * FROM CoffeeOrderItem WHERE id=?");
+    private static final SqlStatement GET_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_ID_SQL =
+            SqlStatement.of("GET_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_ID_SQL",
+                    "SELECT * FROM CoffeeOrderItem WHERE order_id=?");
+    private static final SqlStatement GET_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_IDS_SQL =
+            SqlStatement.of("GET_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_IDS_SQL",
+                    "SELECT * FROM CoffeeOrderItem WHERE order_id IN (%s) ORDER BY order_id, id");
+    private static final SqlStatement STREAM_ALL_COFFEE_ORDER_ITEM_SQL =
+            SqlStatement.of("STREAM_ALL_COFFEE_ORDER_ITEM_SQL",
+                    "SELECT * FROM CoffeeOrderItem ORDER BY order_id, id");
+    private static final SqlStatement UPDATE_COFFEE_ORDER_ITEM_BY_ID_SQL =
+            SqlStatement.of("UPDATE_COFFEE_ORDER_ITEM_BY_ID_SQL",
+                    "UPDATE CoffeeOrderItem SET type_id=?, order_id=?, quantity=? WHERE id=?");
+    private static final SqlStatement DELETE_COFFEE_ORDER_ITEM_BY_ID_SQL =
+            SqlStatement.of("DELETE_COFFEE_ORDER_ITEM_BY_ID_SQL",
+                    "DELETE FROM CoffeeOrderItem WHERE id=?");
+    private static final SqlStatement DELETE_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_ID_SQL =
+            SqlStatement.of("DELETE_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_ID_SQL",
+                    "DELETE FROM CoffeeOrderItem WHERE order_id=?");
+    private static final SqlStatement DELETE_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_IDS_SQL =
+            SqlStatement.of("DELETE_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_IDS_SQL",
+                    "DELETE FROM CoffeeOrderItem WHERE order_id IN (%s)");
 
     public CoffeeOrderItemDaoImpl() {}
 
     /**
-     * Saves the entity type <CoffeeOrderItem> in the database
+     * Saves the entity type <CoffeeOrderItem> in the database with the id of the entity
+     * if it is assigned (id > 0) or with a generated id
      *
      * @param coffeeOrderItem determine entity with type <CoffeeOrderItem>
      * @return saved entity with not null id
@@ -48,23 +64,18 @@ public class CoffeeOrderItemDaoImpl extends AbstractDao implements CoffeeOrderIt
         if (coffeeOrderItem == null) {
             return null;
         }
-
-        if (psSave == null) {
-            psSave = psSave = prepareStatement(SAVE_COFFEE_ORDER_ITEM_SQL, Statement.RETURN_GENERATED_KEYS);
+        if (coffeeOrderItem.getId() > 0) {
+            jdbc.update(SAVE_COFFEE_ORDER_ITEM_WITH_ID_SQL, ps -> bindWithId(ps, coffeeOrderItem));
+            return coffeeOrderItem;
         }
-        psSave.setInt(1, coffeeOrderItem.getCoffeeTypeId());
-        psSave.setInt(2, coffeeOrderItem.getOrderId());
-        psSave.setInt(3, coffeeOrderItem.getQuantity());
-        psSave.executeUpdate();
-
-        try (ResultSet rs = psSave.getGeneratedKeys()) {
-            if (rs.next()) {
-                coffeeOrderItem.setId(rs.getInt(1));
-            }
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psSave + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
+
+        Integer id = jdbc.insert(SAVE_COFFEE_ORDER_ITEM_SQL, ps -> {
+            ps.setInt(1, coffeeOrderItem.getCoffeeTypeId());
+            ps.setInt(2, coffeeOrderItem.getOrderId());
+            ps.setInt(3, coffeeOrderItem.getQuantity());
+        });
+        if (id != null) {
+            coffeeOrderItem.setId(id);
         }
         return coffeeOrderItem;
     }
@@ -79,22 +90,8 @@ public class CoffeeOrderItemDaoImpl extends AbstractDao implements CoffeeOrderIt
      */
     @Override
     public CoffeeOrderItem get(Serializable id) throws SQLException {
-        if (psGet == null) {
-            psGet = prepareStatement(GET_COFFEE_ORDER_ITEM_BY_ID_SQL);
-        }
-        psGet.setInt(1, (int) id);
-        psGet.executeQuery();
-
-        try (ResultSet rs = psGet.getResultSet()) {
-            if (rs.next()) {
-                return populateEntity(rs);
-            }
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psGet + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
-        }
-        return null;
+        return jdbc.queryForObject(GET_COFFEE_ORDER_ITEM_BY_ID_SQL, ps -> ps.setInt(1, (int) id),
+                this::populateEntity);
     }
 
     /**
@@ -109,20 +106,12 @@ public class CoffeeOrderItemDaoImpl extends AbstractDao implements CoffeeOrderIt
         if (coffeeOrderItem == null) {
             return;
         }
-        try {
-            if (psUpdate == null) {
-                psUpdate = prepareStatement(UPDATE_COFFEE_ORDER_ITEM_BY_ID_SQL);
-            }
-            psUpdate.setInt(4, coffeeOrderItem.getId());
-            psUpdate.setInt(1, coffeeOrderItem.getCoffeeTypeId());
-            psUpdate.setInt(2, coffeeOrderItem.getOrderId());
-            psUpdate.setInt(3, coffeeOrderItem.getQuantity());
-            psUpdate.executeUpdate();
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psUpdate + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
-        }
+        jdbc.update(UPDATE_COFFEE_ORDER_ITEM_BY_ID_SQL, ps -> {
+            ps.setInt(4, coffeeOrderItem.getId());
+            ps.setInt(1, coffeeOrderItem.getCoffeeTypeId());
+            ps.setInt(2, coffeeOrderItem.getOrderId());
+            ps.setInt(3, coffeeOrderItem.getQuantity());
+        });
     }
 
     /**
@@ -134,17 +123,7 @@ public class CoffeeOrderItemDaoImpl extends AbstractDao implements CoffeeOrderIt
      */
     @Override
     public int delete(Serializable id) throws SQLException {
-        try {
-            if (psDelete == null) {
-                psDelete = prepareStatement(DELETE_COFFEE_ORDER_ITEM_BY_ID_SQL);
-            }
-            psDelete.setInt(1, (int) id);
-            return psDelete.executeUpdate();
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psDelete + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
-        }
+        return jdbc.update(DELETE_COFFEE_ORDER_ITEM_BY_ID_SQL, ps -> ps.setInt(1, (int) id));
     }
 
     /**
@@ -158,31 +137,111 @@ public class CoffeeOrderItemDaoImpl extends AbstractDao implements CoffeeOrderIt
      */
     @Override
     public List<CoffeeOrderItem> getAllForOrderId(Serializable orderId) throws SQLException {
+        return jdbc.queryForList(GET_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_ID_SQL,
+                ps -> ps.setInt(1, (int) orderId), this::populateEntity);
+    }
+
+    /**
+     * get all records of CoffeeOrderItem from DB for CoffeeOrders with id in orderIds,
+     * one statement per IN list chunk
+     *
+     * @param orderIds determines ids for CoffeeOrders
+     * @return a list of CoffeeOrderItems ordered by order_id and id or
+     *         empty list if orderIds is null or empty or there are no entries
+     * @throws SQLException if there is an error connecting to the database
+     */
+    @Override
+    public List<CoffeeOrderItem> getAllForOrderIds(Collection<Integer> orderIds) throws SQLException {
         List<CoffeeOrderItem> list = new ArrayList<>();
-        try {
-            if (psGetAllForOrderId == null) {
-                psGetAllForOrderId = prepareStatement(GET_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_ID_SQL);
-            }
-            psGetAllForOrderId.setInt(1, (int) orderId);
-            psGetAllForOrderId.execute();
-            try (ResultSet rs = psGetAllForOrderId.getResultSet()) {
-                while (rs.next()) {
-                    list.add(populateEntity(rs));
-                }
-            } catch (SQLException e) {
-                String errorMessage = "Can't execute SQL: " + psGetAllForOrderId +
-                        e.getMessage();
-                log.error(errorMessage);
-                throw new SQLException(errorMessage);
+        // chunks of sorted ids keep the whole list ordered by order_id
+        for (List<Integer> chunk : inListChunks(orderIds == null ? null : new TreeSet<>(orderIds))) {
+            list.addAll(jdbc.queryForList(inListSql(GET_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_IDS_SQL, chunk.size()),
+                    ps -> bindInList(ps, 1, chunk), this::populateEntity));
+        }
+        return list;
+    }
+
+    /**
+     * Saves all CoffeeOrderItems in the database in one batch, with the ids of the entities
+     * if all of them are assigned (id > 0) or with generated ids
+     *
+     * @param coffeeOrderItemList determines the entities to save
+     * @return the same list with not null ids of saved entities or
+     *         empty list if coffeeOrderItemList is null or empty
+     * @throws SQLException if can't save entities
+     */
+    @Override
+    public List<CoffeeOrderItem> saveAll(List<CoffeeOrderItem> coffeeOrderItemList) throws SQLException {
+        if (coffeeOrderItemList == null || coffeeOrderItemList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (coffeeOrderItemList.stream().allMatch(coffeeOrderItem -> coffeeOrderItem.getId() > 0)) {
+            jdbc.batchUpdate(SAVE_COFFEE_ORDER_ITEM_WITH_ID_SQL, coffeeOrderItemList, this::bindWithId);
+            return coffeeOrderItemList;
+        }
+
+        List<Integer> ids = jdbc.batchInsert(SAVE_COFFEE_ORDER_ITEM_SQL, coffeeOrderItemList,
+                (ps, coffeeOrderItem) -> {
+                    ps.setInt(1, coffeeOrderItem.getCoffeeTypeId());
+                    ps.setInt(2, coffeeOrderItem.getOrderId());
+                    ps.setInt(3, coffeeOrderItem.getQuantity());
+                });
+        for (int i = 0; i < coffeeOrderItemList.size(); i++) {
+            if (ids.get(i) != null) {
+                coffeeOrderItemList.get(i).setId(ids.get(i));
             }
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psGetAllForOrderId +
-                    e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
         }
+        return coffeeOrderItemList;
+    }
 
-        return list;
+    /**
+     * removes from the database all CoffeeOrderItems of CoffeeOrder with id = orderId
+     * in one statement
+     *
+     * @param orderId determines id for CoffeeOrder
+     * @return returns the number of deleted rows from the database
+     * @throws SQLException if there is an error deleting entities from the database
+     */
+    @Override
+    public int deleteAllForOrderId(Serializable orderId) throws SQLException {
+        return jdbc.update(DELETE_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_ID_SQL, ps -> ps.setInt(1, (int) orderId));
+    }
+
+    /**
+     * removes from the database all CoffeeOrderItems of CoffeeOrders with id in orderIds
+     *
+     * @param orderIds determines ids for CoffeeOrders
+     * @return returns the number of deleted rows from the database or
+     *         0 if orderIds is null or empty
+     * @throws SQLException if there is an error deleting entities from the database
+     */
+    @Override
+    public int deleteAllForOrderIds(Collection<Integer> orderIds) throws SQLException {
+        int deletedRecords = 0;
+        for (List<Integer> chunk : inListChunks(orderIds)) {
+            deletedRecords += jdbc.update(inListSql(DELETE_ALL_COFFEE_ORDER_ITEM_FOR_ORDER_IDS_SQL, chunk.size()),
+                    ps -> bindInList(ps, 1, chunk));
+        }
+        return deletedRecords;
+    }
+
+    /**
+     * returns all CoffeeOrderItems ordered by order_id and id as a stream read from the database row by row
+     *
+     * @return stream of CoffeeOrderItems, must be closed after use
+     * @throws SQLException if the query can't be executed
+     */
+    @Override
+    public Stream<CoffeeOrderItem> streamAll() throws SQLException {
+        return jdbc.queryForStream(STREAM_ALL_COFFEE_ORDER_ITEM_SQL, ParameterBinder.NONE, this::populateEntity,
+                STREAMING_FETCH_SIZE);
+    }
+
+    private void bindWithId(PreparedStatement ps, CoffeeOrderItem coffeeOrderItem) throws SQLException {
+        ps.setInt(1, coffeeOrderItem.getCoffeeTypeId());
+        ps.setInt(2, coffeeOrderItem.getOrderId());
+        ps.setInt(3, coffeeOrderItem.getQuantity());
+        ps.setInt(4, coffeeOrderItem.getId());
     }
 
     private CoffeeOrderItem populateEntity(ResultSet rs) throws SQLException {
@@ -1,39 +1,41 @@
 package dao.impl;
 
 import dao.CoffeeTypeDao;
+import dao.OptimisticLockException;
+import dao.jdbc.ParameterBinder;
+import dao.jdbc.SqlStatement;
 import entities.CoffeeType;
 import entities.enums.DisabledFlag;
-import org.apache.log4j.Logger;
 import org.springframework.stereotype.Repository;
 
 import java.io.Serializable;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class CoffeeTypeDaoImpl extends AbstractDao implements CoffeeTypeDao {
-    private static Logger log = Logger.getLogger(CoffeeTypeDaoImpl.class);
-
-    private static final String SAVE_COFFEE_TYPE_SQL =
-            "INSERT INTO CoffeeType (type_name, price, disabled) VALUES (?,?,?)";
-    private static final String GET_COFFEE_TYPE_BY_ID_SQL = "SELECT * FROM CoffeeType WHERE id=?";
-    private static final String GET_ALL_COFFEE_TYPE_SQL = "SELECT * FROM CoffeeType";
-    private static final String GET_ALL_COFFEE_TYPE_FOR_DISABLED_FLAG_SQL =
-            "SELECT * FROM CoffeeType WHERE disabled=?";
-    private static final String UPDATE_COFFEE_TYPE_BY_ID_SQL =
-            "UPDATE CoffeeType SET type_name=?, price=?, disabled=? WHERE id=?";
-    private static final String DELETE_COFFEE_TYPE_BY_ID_SQL = "DELETE FROM CoffeeType WHERE id=?";
-
-    private PreparedStatement psSave = null;
-    private PreparedStatement psGet = null;
-    private PreparedStatement psGetAll = null;
-    private PreparedStatement psGetAllForDisabledFlag = null;
-    private PreparedStatement psUpdate = null;
-    private PreparedStatement psDelete = null;
+    private static final SqlStatement SAVE_COFFEE_TYPE_SQL = SqlStatement.of("SAVE_COFFEE_TYPE_SQL",
+            "INSERT INTO CoffeeType (type_name, price, disabled) VALUES (?,?,?)");
+    private static final SqlStatement GET_COFFEE_TYPE_BY_ID_SQL = SqlStatement.of("GET_COFFEE_TYPE_BY_ID_SQL",
+            "SELECT * FROM CoffeeType WHERE id=?");
+    private static final SqlStatement GET_ALL_COFFEE_TYPE_SQL = SqlStatement.of("GET_ALL_COFFEE_TYPE_SQL",
+            "SELECT * FROM CoffeeType");
+    private static final SqlStatement GET_ALL_COFFEE_TYPE_FOR_DISABLED_FLAG_SQL =
+            SqlStatement.of("GET_ALL_COFFEE_TYPE_FOR_DISABLED_FLAG_SQL",
+                    "SELECT * FROM CoffeeType WHERE disabled=?");
+    private static final SqlStatement GET_ALL_COFFEE_TYPE_BY_IDS_SQL =
+            SqlStatement.of("GET_ALL_COFFEE_TYPE_BY_IDS_SQL",
+                    "SELECT * FROM CoffeeType WHERE id IN (%s)");
+    private static final SqlStatement UPDATE_COFFEE_TYPE_BY_ID_SQL = SqlStatement.of("UPDATE_COFFEE_TYPE_BY_ID_SQL",
+            "UPDATE CoffeeType SET type_name=?, price=?, disabled=?, version=version+1 WHERE id=? AND version=?");
+    // partitioned CoffeeOrderItem can't have a foreign key to CoffeeType, the reference is checked here
+    private static final SqlStatement DELETE_COFFEE_TYPE_BY_ID_SQL = SqlStatement.of("DELETE_COFFEE_TYPE_BY_ID_SQL",
+            "DELETE FROM CoffeeType WHERE id=? AND NOT EXISTS (SELECT 1 FROM CoffeeOrderItem WHERE type_id=?)");
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23000";
 
     public CoffeeTypeDaoImpl() {}
 
@@ -50,23 +52,15 @@ public class CoffeeTypeDaoImpl extends AbstractDao implements CoffeeTypeDao {
             return null;
         }
 
-        if (psSave == null) {
-            psSave = psSave = prepareStatement(SAVE_COFFEE_TYPE_SQL, Statement.RETURN_GENERATED_KEYS);
-        }
-        psSave.setString(1, coffeeType.getTypeName());
-        psSave.setDouble(2, coffeeType.getPrice());
-        psSave.setString(3, String.valueOf(coffeeType.getDisabled()));
-        psSave.executeUpdate();
-
-        try (ResultSet rs = psSave.getGeneratedKeys()) {
-            if (rs.next()) {
-                coffeeType.setId(rs.getInt(1));
-            }
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psSave + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
+        Integer id = jdbc.insert(SAVE_COFFEE_TYPE_SQL, ps -> {
+            ps.setString(1, coffeeType.getTypeName());
+            ps.setDouble(2, coffeeType.getPrice());
+            ps.setString(3, String.valueOf(coffeeType.getDisabled()));
+        });
+        if (id != null) {
+            coffeeType.setId(id);
         }
+        coffeeType.setVersion(0);
         return coffeeType;
     }
 
@@ -80,29 +74,17 @@ public class CoffeeTypeDaoImpl extends AbstractDao implements CoffeeTypeDao {
      */
     @Override
     public CoffeeType get(Serializable id) throws SQLException {
-        if (psGet == null) {
-            psGet = prepareStatement(GET_COFFEE_TYPE_BY_ID_SQL);
-        }
-        psGet.setInt(1, (int) id);
-        psGet.executeQuery();
-
-        try (ResultSet rs = psGet.getResultSet()) {
-            if (rs.next()) {
-                return populateEntity(rs);
-            }
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psGet + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
-        }
-        return null;
+        return jdbc.queryForObject(GET_COFFEE_TYPE_BY_ID_SQL, ps -> ps.setInt(1, (int) id),
+                this::populateEntity);
     }
 
     /**
-     * update an entity with an id = coffeeType.id in the database
+     * update an entity with an id = coffeeType.id and version = coffeeType.version
+     * in the database and increments coffeeType.version
      *
      * @param coffeeType determine a new entity to be updated
      *                   in the database with id = coffeeType.id
+     * @throws OptimisticLockException if the row was changed or deleted after coffeeType was read
      * @throws SQLException if there is an error updating entity in the database
      */
     @Override
@@ -110,20 +92,17 @@ public class CoffeeTypeDaoImpl extends AbstractDao implements CoffeeTypeDao {
         if (coffeeType == null) {
             return;
         }
-        try {
-            if (psUpdate == null) {
-                psUpdate = prepareStatement(UPDATE_COFFEE_TYPE_BY_ID_SQL);
-            }
-            psUpdate.setInt(4, coffeeType.getId());
-            psUpdate.setString(1, coffeeType.getTypeName());
-            psUpdate.setDouble(2, coffeeType.getPrice());
-            psUpdate.setString(3, String.valueOf(coffeeType.getDisabled()));
-            psUpdate.executeUpdate();
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psUpdate + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
+        int updatedRecords = jdbc.update(UPDATE_COFFEE_TYPE_BY_ID_SQL, ps -> {
+            ps.setInt(4, coffeeType.getId());
+            ps.setInt(5, coffeeType.getVersion());
+            ps.setString(1, coffeeType.getTypeName());
+            ps.setDouble(2, coffeeType.getPrice());
+            ps.setString(3, String.valueOf(coffeeType.getDisabled()));
+        });
+        if (updatedRecords == 0) {
+            throw new OptimisticLockException("CoffeeType", coffeeType.getId(), coffeeType.getVersion());
         }
+        coffeeType.setVersion(coffeeType.getVersion() + 1);
     }
 
     /**
@@ -131,21 +110,20 @@ public class CoffeeTypeDaoImpl extends AbstractDao implements CoffeeTypeDao {
      *
      * @param id determine id of entity in database
      * @return returns the number of deleted rows from the database
-     * @throws SQLException if there is an error deleting entity from the database
+     * @throws SQLException if there is an error deleting entity from the database or
+     *                      CoffeeOrderItems refer to the entity
      */
     @Override
     public int delete(Serializable id) throws SQLException {
-        try {
-            if (psDelete == null) {
-                psDelete = prepareStatement(DELETE_COFFEE_TYPE_BY_ID_SQL);
-            }
-            psDelete.setInt(1, (int) id);
-            return psDelete.executeUpdate();
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psDelete + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
+        int deletedRecords = jdbc.update(DELETE_COFFEE_TYPE_BY_ID_SQL, ps -> {
+            ps.setInt(1, (int) id);
+            ps.setInt(2, (int) id);
+        });
+        if (deletedRecords == 0 && get(id) != null) {
+            throw new SQLException("CoffeeType with id " + id + " is referred to by CoffeeOrderItems",
+                    INTEGRITY_CONSTRAINT_VIOLATION);
         }
+        return deletedRecords;
     }
 
     /**
@@ -157,28 +135,7 @@ public class CoffeeTypeDaoImpl extends AbstractDao implements CoffeeTypeDao {
      */
     @Override
     public List<CoffeeType> getAll() throws SQLException {
-        List<CoffeeType> list = new ArrayList<>();
-        try {
-            if (psGetAll == null) {
-                psGetAll = prepareStatement(GET_ALL_COFFEE_TYPE_SQL);
-            }
-            psGetAll.execute();
-            try (ResultSet rs = psGetAll.getResultSet()) {
-                while (rs.next()) {
-                    list.add(populateEntity(rs));
-                }
-            } catch (SQLException e) {
-                String errorMessage = "Can't execute SQL: " + psGetAll + e.getMessage();
-                log.error(errorMessage);
-                throw new SQLException(errorMessage);
-            }
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psGetAll + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
-        }
-
-        return list;
+        return jdbc.queryForList(GET_ALL_COFFEE_TYPE_SQL, ParameterBinder.NONE, this::populateEntity);
     }
 
     /**
@@ -192,31 +149,28 @@ public class CoffeeTypeDaoImpl extends AbstractDao implements CoffeeTypeDao {
      */
     @Override
     public List<CoffeeType> getAllForDisabledFlag(DisabledFlag disabledFlag) throws SQLException {
-        List<CoffeeType> list = new ArrayList<>();
-        try {
-            if (psGetAllForDisabledFlag == null) {
-                psGetAllForDisabledFlag = prepareStatement(GET_ALL_COFFEE_TYPE_FOR_DISABLED_FLAG_SQL);
-            }
-            psGetAllForDisabledFlag.setString(1, String.valueOf(disabledFlag));
-            psGetAllForDisabledFlag.execute();
-            try (ResultSet rs = psGetAllForDisabledFlag.getResultSet()) {
-                while (rs.next()) {
-                    list.add(populateEntity(rs));
-                }
-            } catch (SQLException e) {
-                String errorMessage = "Can't execute SQL: " + psGetAllForDisabledFlag +
-                        e.getMessage();
-                log.error(errorMessage);
-                throw new SQLException(errorMessage);
-            }
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psGetAllForDisabledFlag +
-                    e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
+        return jdbc.queryForList(GET_ALL_COFFEE_TYPE_FOR_DISABLED_FLAG_SQL,
+                ps -> ps.setString(1, String.valueOf(disabledFlag)), this::populateEntity);
+    }
+
+    /**
+     * get all records of CoffeeTypes from DB with id in ids in one query
+     *
+     * @param ids determines ids of CoffeeTypes
+     * @return a map of found CoffeeTypes by id or
+     *         empty map if ids is null or empty or there are no entries
+     * @throws SQLException if there is an error connecting to the database
+     */
+    @Override
+    public Map<Integer, CoffeeType> getAllByIds(Collection<Integer> ids) throws SQLException {
+        Map<Integer, CoffeeType> map = new HashMap<>();
+        for (List<Integer> chunk : inListChunks(ids)) {
+            jdbc.forEach(inListSql(GET_ALL_COFFEE_TYPE_BY_IDS_SQL, chunk.size()),
+                    ps -> bindInList(ps, 1, chunk), this::populateEntity,
+                    coffeeType -> map.put(coffeeType.getId(), coffeeType));
         }
 
-        return list;
+        return map;
     }
 
     private CoffeeType populateEntity(ResultSet rs) throws SQLException {
@@ -225,6 +179,7 @@ public class CoffeeTypeDaoImpl extends AbstractDao implements CoffeeTypeDao {
         entity.setTypeName(rs.getString(2));
         entity.setPrice(rs.getDouble(3));
         entity.setDisabled(DisabledFlag.valueOf(rs.getString(4)));
+        entity.setVersion(rs.getInt(5));
 
         return entity;
     }
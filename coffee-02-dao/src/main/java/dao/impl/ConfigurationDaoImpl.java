@@ -1,32 +1,27 @@
 package dao.impl;
 
 import dao.ConfigurationDao;
+import dao.OptimisticLockException;
+import dao.jdbc.SqlStatement;
 import entities.Configuration;
-import org.apache.log4j.Logger;
 import org.springframework.stereotype.Repository;
 
 import java.io.Serializable;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
 @Repository
 public class ConfigurationDaoImpl extends AbstractDao implements ConfigurationDao {
-    private static Logger log = Logger.getLogger(ConfigurationDaoImpl.class);
-
-    private static final String SAVE_CONFIGURATION_SQL =
-            "INSERT INTO Configuration (id, `value`) VALUES (?,?)";
-    private static final String GET_CONFIGURATION_BY_ID_SQL =
-            "SELECT * FROM Configuration WHERE id=?";
-    private static final String UPDATE_CONFIGURATION_BY_ID_SQL =
-            "UPDATE Configuration SET `value`=? WHERE id=?";
-    private static final String DELETE_CONFIGURATION_BY_ID_SQL =
-            "DELETE FROM Configuration WHERE id=?";
-
-    private PreparedStatement psSave = null;
-    private PreparedStatement psGet = null;
-    private PreparedStatement psUpdate = null;
-    private PreparedStatement psDelete = null;
+    private static final SqlStatement SAVE_CONFIGURATION_SQL = SqlStatement.of("SAVE_CONFIGURATION_SQL",
+            "INSERT INTO Configuration (id, `value`) VALUES (?,?)");
+    private static final SqlStatement GET_CONFIGURATION_BY_ID_SQL = SqlStatement.of("GET_CONFIGURATION_BY_ID_SQL",
+            "SELECT * FROM Configuration WHERE id=?");
+    private static final SqlStatement UPDATE_CONFIGURATION_BY_ID_SQL =
+            SqlStatement.of("UPDATE_CONFIGURATION_BY_ID_SQL",
+                    "UPDATE Configuration SET `value`=?, version=version+1 WHERE id=? AND version=?");
+    private static final SqlStatement DELETE_CONFIGURATION_BY_ID_SQL =
+            SqlStatement.of("DELETE_CONFIGURATION_BY_ID_SQL",
+                    "DELETE FROM Configuration WHERE id=?");
 
     public ConfigurationDaoImpl() {}
 
@@ -42,18 +37,11 @@ public class ConfigurationDaoImpl extends AbstractDao implements ConfigurationDa
     public Configuration save(Configuration configuration) throws SQLException {
 
         if (configuration != null && configuration.getId() != null) {
-            try {
-                if (psSave == null) {
-                    psSave = psSave = prepareStatement(SAVE_CONFIGURATION_SQL);
-                }
-                psSave.setString(1, configuration.getId());
-                psSave.setString(2, configuration.getValue());
-                psSave.executeUpdate();
-            } catch (SQLException e) {
-                String errorMessage = "Can't execute SQL: " + psSave + e.getMessage();
-                log.error(errorMessage);
-                throw new SQLException(errorMessage);
-            }
+            jdbc.update(SAVE_CONFIGURATION_SQL, ps -> {
+                ps.setString(1, configuration.getId());
+                ps.setString(2, configuration.getValue());
+            });
+            configuration.setVersion(0);
 
             return configuration;
         } else {
@@ -72,29 +60,17 @@ public class ConfigurationDaoImpl extends AbstractDao implements ConfigurationDa
      */
     @Override
     public Configuration get(Serializable id) throws SQLException {
-        if (psGet == null) {
-            psGet = prepareStatement(GET_CONFIGURATION_BY_ID_SQL);
-        }
-        psGet.setString(1, (String) id);
-        psGet.executeQuery();
-
-        try (ResultSet rs = psGet.getResultSet()) {
-            if (rs.next()) {
-                return populateEntity(rs);
-            }
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psGet + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
-        }
-        return null;
+        return jdbc.queryForObject(GET_CONFIGURATION_BY_ID_SQL, ps -> ps.setString(1, (String) id),
+                this::populateEntity);
     }
 
     /**
-     * update an entity with an id = configuration.id in the database
+     * update an entity with an id = configuration.id and version = configuration.version
+     * in the database and increments configuration.version
      *
      * @param configuration determine a new entity to be updated
      *                    in the database with id = configuration.id
+     * @throws OptimisticLockException if the row was changed or deleted after configuration was read
      * @throws SQLException if there is an error updating entity in the database
      */
     @Override
@@ -102,18 +78,15 @@ public class ConfigurationDaoImpl extends AbstractDao implements ConfigurationDa
         if (configuration == null) {
             return;
         }
-        try {
-            if (psUpdate == null) {
-                psUpdate = prepareStatement(UPDATE_CONFIGURATION_BY_ID_SQL);
-            }
-            psUpdate.setString(2, configuration.getId());
-            psUpdate.setString(1, configuration.getValue());
-            psUpdate.executeUpdate();
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psUpdate + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
+        int updatedRecords = jdbc.update(UPDATE_CONFIGURATION_BY_ID_SQL, ps -> {
+            ps.setString(2, configuration.getId());
+            ps.setInt(3, configuration.getVersion());
+            ps.setString(1, configuration.getValue());
+        });
+        if (updatedRecords == 0) {
+            throw new OptimisticLockException("Configuration", configuration.getId(), configuration.getVersion());
         }
+        configuration.setVersion(configuration.getVersion() + 1);
     }
 
     /**
@@ -125,23 +98,14 @@ public class ConfigurationDaoImpl extends AbstractDao implements ConfigurationDa
      */
     @Override
     public int delete(Serializable id) throws SQLException {
-        try {
-            if (psDelete == null) {
-                psDelete = prepareStatement(DELETE_CONFIGURATION_BY_ID_SQL);
-            }
-            psDelete.setString(1, (String) id);
-            return psDelete.executeUpdate();
-        } catch (SQLException e) {
-            String errorMessage = "Can't execute SQL: " + psDelete + e.getMessage();
-            log.error(errorMessage);
-            throw new SQLException(errorMessage);
-        }
+        return jdbc.update(DELETE_CONFIGURATION_BY_ID_SQL, ps -> ps.setString(1, (String) id));
     }
 
     private Configuration populateEntity(ResultSet rs) throws SQLException {
         Configuration entity = new Configuration();
         entity.setId(rs.getString(1));
         entity.setValue(rs.getString(2) );
+        entity.setVersion(rs.getInt(3));
 
         return entity;
     }
@@ -0,0 +1,84 @@
+package dao.impl;
+
+import dao.IdAllocator;
+import db.DataSource;
+import db.DbProperties;
+import org.apache.log4j.Logger;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hi/lo allocator over the IdSequence table: a block of id.blockSize ids is reserved
+ * by one UPDATE and handed out from memory.
+ * <p>
+ * The block is reserved on its own connection in autocommit, not in the transaction
+ * of the caller: a rolled back transaction must not return a block that is in use.
+ */
+@Repository
+public class IdAllocatorImpl implements IdAllocator {
+    private static Logger log = Logger.getLogger(IdAllocatorImpl.class);
+    // LAST_INSERT_ID(expr) keeps the new value for this connection, no lock is held after the UPDATE
+    private static final String RESERVE_ID_BLOCK_SQL =
+            "UPDATE IdSequence SET next_id = LAST_INSERT_ID(next_id + ?) WHERE name = ?";
+    private static final String GET_RESERVED_ID_SQL = "SELECT LAST_INSERT_ID()";
+
+    private final int blockSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    public IdAllocatorImpl() {
+        this.blockSize = Math.max(1, DbProperties.getInt("id.blockSize", 100));
+    }
+
+    @Override
+    public int nextId(String sequence) throws SQLException {
+        Block block = blocks.computeIfAbsent(sequence, name -> new Block());
+        synchronized (block) {
+            if (block.next == block.end) {
+                block.end = reserve(sequence);
+                block.next = block.end - blockSize;
+            }
+            return block.next++;
+        }
+    }
+
+    /**
+     * reserves the next block of ids in the database
+     *
+     * @return the id after the reserved block
+     */
+    private int reserve(String sequence) throws SQLException {
+        try (Connection connection = DataSource.getInstance().getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement(RESERVE_ID_BLOCK_SQL)) {
+                ps.setInt(1, blockSize);
+                ps.setString(2, sequence);
+                if (ps.executeUpdate() == 0) {
+                    throw new SQLException("There is no id sequence: " + sequence);
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement(GET_RESERVED_ID_SQL);
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                int end = rs.getInt(1);
+                log.debug(String.format("Reserved ids [%d, %d) of %s", end - blockSize, end, sequence));
+                return end;
+            }
+        } catch (SQLException e) {
+            log.error("Can't reserve ids of " + sequence + ": " + e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            log.error("Can't reserve ids of " + sequence + ": " + e.getMessage());
+            throw new SQLException("Can't reserve ids of " + sequence + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static class Block {
+        private int next;
+        private int end;
+    }
+}
@@ -0,0 +1,17 @@
+package dao.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Hook called by JdbcExecutor after every statement execution
+ */
+@FunctionalInterface
+public interface ExecutionListener {
+    /**
+     * @param sql determines the executed statement
+     * @param elapsedNanos determines the execution time, for streams - until the stream is closed
+     * @param rows determines the number of rows read or changed
+     * @param error determines the error of the execution or null on success
+     */
+    void afterExecution(SqlStatement sql, long elapsedNanos, int rows, SQLException error);
+}
@@ -0,0 +1,16 @@
+package dao.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface ItemBinder<T> {
+    /**
+     * Sets the parameters of the statement from one item of a batch
+     *
+     * @param ps determines the statement to bind the parameters to
+     * @param item determines the item of the batch
+     * @throws SQLException if a parameter can't be set
+     */
+    void bind(PreparedStatement ps, T item) throws SQLException;
+}
@@ -0,0 +1,396 @@
+package dao.jdbc;
+
+import org.apache.log4j.Logger;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Executes statements got from StatementFactory: binds parameters, maps rows,
+ * wraps errors and reports every execution to the registered ExecutionListeners
+ */
+public class JdbcExecutor {
+    private static Logger log = Logger.getLogger(JdbcExecutor.class);
+
+    private static final CopyOnWriteArrayList<ExecutionListener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static volatile SlowQueryLog slowQueryLog = SlowQueryLog.fromProperties();
+
+    private final StatementFactory statementFactory;
+
+    public JdbcExecutor(StatementFactory statementFactory) {
+        this.statementFactory = statementFactory;
+    }
+
+    public static void addListener(ExecutionListener listener) {
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    public static void removeListener(ExecutionListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    public static SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    public static void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+        JdbcExecutor.slowQueryLog = slowQueryLog;
+    }
+
+    /**
+     * executes the query and maps all rows
+     *
+     * @param sql determines the query
+     * @param binder determines the parameters of the query
+     * @param mapper determines the mapping of a row to an entity
+     * @return list of mapped rows or empty list if there are no rows
+     * @throws SQLException if the query can't be executed
+     */
+    public <T> List<T> queryForList(SqlStatement sql, ParameterBinder binder, RowMapper<T> mapper)
+            throws SQLException {
+        List<T> list = new ArrayList<>();
+        forEach(sql, binder, mapper, list::add);
+        return list;
+    }
+
+    /**
+     * executes the query and maps the first row
+     *
+     * @param sql determines the query
+     * @param binder determines the parameters of the query
+     * @param mapper determines the mapping of a row to an entity
+     * @return mapped first row or null if there are no rows
+     * @throws SQLException if the query can't be executed
+     */
+    public <T> T queryForObject(SqlStatement sql, ParameterBinder binder, RowMapper<T> mapper)
+            throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement ps = null;
+        try {
+            ps = statementFactory.prepareStatement(sql, Statement.NO_GENERATED_KEYS);
+            binder.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                T entity = rs.next() ? mapper.mapRow(rs) : null;
+                afterExecution(sql, ps, start, entity == null ? 0 : 1, null);
+                return entity;
+            }
+        } catch (SQLException e) {
+            throw failure(sql, ps, start, e);
+        } finally {
+            closeQuietly(ps);
+        }
+    }
+
+    /**
+     * executes the query and passes every mapped row to the consumer without collecting them
+     *
+     * @param sql determines the query
+     * @param binder determines the parameters of the query
+     * @param mapper determines the mapping of a row to an entity
+     * @param consumer determines the action for every mapped row
+     * @return the number of rows
+     * @throws SQLException if the query can't be executed
+     */
+    public <T> int forEach(SqlStatement sql, ParameterBinder binder, RowMapper<T> mapper,
+                           Consumer<? super T> consumer) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement ps = null;
+        try {
+            ps = statementFactory.prepareStatement(sql, Statement.NO_GENERATED_KEYS);
+            binder.bind(ps);
+            int rows = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(mapper.mapRow(rs));
+                    rows++;
+                }
+            }
+            afterExecution(sql, ps, start, rows, null);
+            return rows;
+        } catch (SQLException e) {
+            throw failure(sql, ps, start, e);
+        } finally {
+            closeQuietly(ps);
+        }
+    }
+
+    /**
+     * executes the query and returns a lazy stream of mapped rows.
+     * The statement and the ResultSet stay open until the stream is closed, so the stream
+     * must be used in try-with-resources and only on the thread that opened it.
+     *
+     * @param sql determines the query
+     * @param binder determines the parameters of the query
+     * @param mapper determines the mapping of a row to an entity
+     * @param fetchSize determines the fetch size hint for the driver
+     * @return stream of mapped rows
+     * @throws SQLException if the query can't be executed
+     */
+    public <T> Stream<T> queryForStream(SqlStatement sql, ParameterBinder binder, RowMapper<T> mapper,
+                                        int fetchSize) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement ps = null;
+        try {
+            ps = statementFactory.prepareStatement(sql, Statement.NO_GENERATED_KEYS);
+            ps.setFetchSize(fetchSize);
+            binder.bind(ps);
+            ResultSet rs = ps.executeQuery();
+            RowIterator<T> rows = new RowIterator<>(sql, rs, mapper);
+            PreparedStatement statement = ps;
+            return StreamSupport
+                    .stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL),
+                            false)
+                    .onClose(() -> closeStream(sql, start, statement, rows));
+        } catch (SQLException e) {
+            SQLException failure = failure(sql, ps, start, e);
+            closeStreaming(ps);
+            throw failure;
+        }
+    }
+
+    /**
+     * executes INSERT, UPDATE or DELETE statement
+     *
+     * @param sql determines the statement
+     * @param binder determines the parameters of the statement
+     * @return the number of changed rows
+     * @throws SQLException if the statement can't be executed
+     */
+    public int update(SqlStatement sql, ParameterBinder binder) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement ps = null;
+        try {
+            ps = statementFactory.prepareStatement(sql, Statement.NO_GENERATED_KEYS);
+            binder.bind(ps);
+            int rows = ps.executeUpdate();
+            afterExecution(sql, ps, start, rows, null);
+            return rows;
+        } catch (SQLException e) {
+            throw failure(sql, ps, start, e);
+        } finally {
+            closeQuietly(ps);
+        }
+    }
+
+    /**
+     * executes INSERT statement and returns the generated key
+     *
+     * @param sql determines the statement
+     * @param binder determines the parameters of the statement
+     * @return the generated key or null if the key was not generated
+     * @throws SQLException if the statement can't be executed
+     */
+    public Integer insert(SqlStatement sql, ParameterBinder binder) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement ps = null;
+        try {
+            ps = statementFactory.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            binder.bind(ps);
+            int rows = ps.executeUpdate();
+            Integer key = null;
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                if (rs.next()) {
+                    key = rs.getInt(1);
+                }
+            }
+            afterExecution(sql, ps, start, rows, null);
+            return key;
+        } catch (SQLException e) {
+            throw failure(sql, ps, start, e);
+        } finally {
+            closeQuietly(ps);
+        }
+    }
+
+    /**
+     * executes INSERT statement for all items in one batch and returns the generated keys
+     *
+     * @param sql determines the statement
+     * @param items determines the items to insert
+     * @param binder determines the parameters of the statement for an item
+     * @return the generated keys in the order of items, null for an item without a key
+     * @throws SQLException if the batch can't be executed
+     */
+    public <T> List<Integer> batchInsert(SqlStatement sql, List<T> items, ItemBinder<? super T> binder)
+            throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement ps = null;
+        try {
+            ps = statementFactory.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            for (T item : items) {
+                binder.bind(ps, item);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+
+            List<Integer> keys = new ArrayList<>(items.size());
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                while (rs.next() && keys.size() < items.size()) {
+                    keys.add(rs.getInt(1));
+                }
+            }
+            while (keys.size() < items.size()) {
+                keys.add(null);
+            }
+            afterExecution(sql, ps, start, items.size(), null);
+            return keys;
+        } catch (SQLException e) {
+            throw failure(sql, ps, start, e);
+        } finally {
+            closeQuietly(ps);
+        }
+    }
+
+    /**
+     * executes INSERT, UPDATE or DELETE statement for all items in one batch
+     *
+     * @param sql determines the statement
+     * @param items determines the items
+     * @param binder determines the parameters of the statement for an item
+     * @return the number of items
+     * @throws SQLException if the batch can't be executed
+     */
+    public <T> int batchUpdate(SqlStatement sql, List<T> items, ItemBinder<? super T> binder)
+            throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement ps = null;
+        try {
+            ps = statementFactory.prepareStatement(sql, Statement.NO_GENERATED_KEYS);
+            for (T item : items) {
+                binder.bind(ps, item);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            afterExecution(sql, ps, start, items.size(), null);
+            return items.size();
+        } catch (SQLException e) {
+            throw failure(sql, ps, start, e);
+        } finally {
+            closeQuietly(ps);
+        }
+    }
+
+    // the statement is still open for the slow query log
+    private SQLException failure(SqlStatement sql, PreparedStatement ps, long start, SQLException e) {
+        afterExecution(sql, ps, start, 0, e);
+        String errorMessage = "Can't execute SQL: " + sql + " " + e.getMessage();
+        log.error(errorMessage);
+        return new SQLException(errorMessage, e.getSQLState(), e.getErrorCode(), e);
+    }
+
+    private void afterExecution(SqlStatement sql, PreparedStatement ps, long start, int rows,
+                                SQLException error) {
+        long elapsedNanos = System.nanoTime() - start;
+        SlowQueryLog slowQueryLog = JdbcExecutor.slowQueryLog;
+        if (slowQueryLog.isSlow(elapsedNanos)) {
+            try {
+                slowQueryLog.log(sql, ps, elapsedNanos, error);
+            } catch (RuntimeException e) {
+                log.warn("Slow query log failed for " + sql + ": " + e.getMessage());
+            }
+        }
+        for (ExecutionListener listener : LISTENERS) {
+            try {
+                listener.afterExecution(sql, elapsedNanos, rows, error);
+            } catch (RuntimeException e) {
+                log.warn("Execution listener failed for " + sql + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void closeStream(SqlStatement sql, long start, PreparedStatement ps, RowIterator<?> rows) {
+        // the statement is still open for the slow query log
+        afterExecution(sql, ps, start, rows.count, rows.error);
+        closeStreaming(ps);
+    }
+
+    private static void closeStreaming(Statement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            // the statement goes back to the statement cache of the pool,
+            // the streaming fetch size must not stay in it
+            statement.setFetchSize(0);
+        } catch (SQLException e) {
+            log.warn("Can't reset fetch size of statement: " + e.getMessage());
+        }
+        closeQuietly(statement);
+    }
+
+    private static void closeQuietly(Statement statement) {
+        if (statement == null) {
+            return;
+        }
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            log.warn("Can't close statement: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Iterates over the ResultSet of a stream, SQLException is rethrown as StreamingException
+     */
+    private static class RowIterator<T> implements Iterator<T> {
+        private final SqlStatement sql;
+        private final ResultSet rs;
+        private final RowMapper<T> mapper;
+        private Boolean hasNext;
+        private int count;
+        private SQLException error;
+
+        RowIterator(SqlStatement sql, ResultSet rs, RowMapper<T> mapper) {
+            this.sql = sql;
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (hasNext == null) {
+                try {
+                    hasNext = rs.next();
+                } catch (SQLException e) {
+                    throw streamingFailure(e);
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                T entity = mapper.mapRow(rs);
+                count++;
+                hasNext = null;
+                return entity;
+            } catch (SQLException e) {
+                throw streamingFailure(e);
+            }
+        }
+
+        private StreamingException streamingFailure(SQLException e) {
+            hasNext = false;
+            error = e;
+            String errorMessage = "Can't read SQL: " + sql + " " + e.getMessage();
+            log.error(errorMessage);
+            return new StreamingException(new SQLException(errorMessage, e.getSQLState(), e.getErrorCode(), e));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package dao.jdbc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies on log-scale buckets: the upper bound of a bucket is
+ * sqrt(2) times the bound of the previous one, from 1 microsecond to about an hour.
+ * A percentile is reported as the upper bound of its bucket, so it is at most 41% higher
+ * than the exact value.
+ */
+class LatencyHistogram {
+    private static final int BUCKETS = 64;
+    private static final long[] UPPER_BOUNDS_NANOS = new long[BUCKETS];
+
+    static {
+        for (int i = 0; i < BUCKETS; i++) {
+            UPPER_BOUNDS_NANOS[i] = (long) (1000 * Math.pow(2, (i + 1) / 2.0));
+        }
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos) {
+        counts.incrementAndGet(bucket(nanos));
+    }
+
+    /**
+     * returns the latency that is not exceeded by the fraction of recorded values
+     *
+     * @param fraction determines the fraction of values, for example 0.95 for p95
+     * @return the upper bound of the bucket with the percentile in nanoseconds
+     *         or 0 if there are no values
+     */
+    long percentile(double fraction) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return UPPER_BOUNDS_NANOS[i];
+            }
+        }
+        return UPPER_BOUNDS_NANOS[BUCKETS - 1];
+    }
+
+    private static int bucket(long nanos) {
+        for (int i = 0; i < BUCKETS; i++) {
+            if (nanos <= UPPER_BOUNDS_NANOS[i]) {
+                return i;
+            }
+        }
+        return BUCKETS - 1;
+    }
+}
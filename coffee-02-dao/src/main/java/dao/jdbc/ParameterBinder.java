@@ -0,0 +1,17 @@
+package dao.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface ParameterBinder {
+    ParameterBinder NONE = ps -> {};
+
+    /**
+     * Sets the parameters of the statement
+     *
+     * @param ps determines the statement to bind the parameters to
+     * @throws SQLException if a parameter can't be set
+     */
+    void bind(PreparedStatement ps) throws SQLException;
+}
@@ -0,0 +1,16 @@
+package dao.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * Maps the current row of the ResultSet to an entity
+     *
+     * @param rs determines ResultSet positioned on the row to map
+     * @return entity populated from the row
+     * @throws SQLException if a column can't be read
+     */
+    T mapRow(ResultSet rs) throws SQLException;
+}
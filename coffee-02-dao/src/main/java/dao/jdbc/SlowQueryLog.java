@@ -0,0 +1,186 @@
+package dao.jdbc;
+
+import db.DataSource;
+import db.DbProperties;
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes statements executed longer than the threshold to the log of this class with
+ * the bound parameters, the calling method and the EXPLAIN plan, failed statements too:
+ * a lock wait timeout is logged with the parameters and the plan of the waiting statement.
+ * The log has its own appender in log4j.properties.
+ * <p>
+ * The statement text with parameters and the caller are taken on the executing thread,
+ * EXPLAIN and writing to the log are done by a background thread on a connection of its
+ * own. EXPLAIN of a statement is captured not more often than once in explainInterval.
+ * Records that don't fit in the queue of the background thread are dropped.
+ */
+public class SlowQueryLog {
+    private static Logger log = Logger.getLogger(SlowQueryLog.class);
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final String EXPLAIN_PREFIX = "EXPLAIN ";
+
+    private final long thresholdNanos;
+    private final long explainIntervalNanos;
+    private final String callerPackage;
+    private final Map<String, Long> lastExplainNanos = new ConcurrentHashMap<>();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final ThreadPoolExecutor writer;
+
+    /**
+     * @param thresholdMillis determines the minimum time of a logged statement, 0 - log nothing
+     * @param explainIntervalMillis determines the minimum time between two EXPLAINs of a statement
+     * @param callerPackage determines the package prefix of the classes reported as the caller
+     */
+    public SlowQueryLog(long thresholdMillis, long explainIntervalMillis, String callerPackage) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.explainIntervalNanos = TimeUnit.MILLISECONDS.toNanos(explainIntervalMillis);
+        this.callerPackage = callerPackage;
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "slow-query-log");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> droppedCount.incrementAndGet());
+    }
+
+    /**
+     * returns the slow query log configured by sql.slowQuery* settings of db_coffee
+     *
+     * @return the slow query log, it logs nothing if sql.slowQueryMillis is 0
+     */
+    public static SlowQueryLog fromProperties() {
+        return new SlowQueryLog(DbProperties.getLong("sql.slowQueryMillis", 0),
+                TimeUnit.SECONDS.toMillis(DbProperties.getLong("sql.slowQuery.explainIntervalSeconds", 60)),
+                DbProperties.getString("sql.slowQuery.callerPackage", "services."));
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return thresholdNanos > 0 && elapsedNanos >= thresholdNanos;
+    }
+
+    /**
+     * returns the number of slow statements not logged because the log queue was full
+     *
+     * @return the number of dropped records since start
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Logs a slow statement, must be called on the thread that executed it
+     * before the statement is used again
+     *
+     * @param sql determines the executed statement
+     * @param ps determines the prepared statement with bound parameters or null if unknown
+     * @param elapsedNanos determines the execution time
+     * @param error determines the error of the execution or null on success
+     */
+    public void log(SqlStatement sql, PreparedStatement ps, long elapsedNanos, SQLException error) {
+        String boundSql = boundSql(sql, ps);
+        String caller = caller();
+        boolean explain = boundSql != null && isExplainable(boundSql) && explainDue(sql);
+        writer.execute(() -> write(sql, boundSql, caller, elapsedNanos, error, explain));
+    }
+
+    // waits until the records queued so far are written
+    void awaitWritten() throws InterruptedException, ExecutionException {
+        writer.submit(() -> {}).get();
+    }
+
+    private void write(SqlStatement sql, String boundSql, String caller, long elapsedNanos,
+                       SQLException error, boolean explain) {
+        StringBuilder message = new StringBuilder()
+                .append("Slow SQL ").append(sql.getName())
+                .append(String.format(" %.1f ms", elapsedNanos / 1_000_000.0))
+                .append(" caller=").append(caller)
+                .append(error == null ? "" : " error=" + error.getMessage())
+                .append("\n    ").append(boundSql == null ? sql.getSql() + " [parameters unknown]" : boundSql);
+        if (explain) {
+            message.append(explain(boundSql));
+        }
+        log.warn(message);
+    }
+
+    private boolean explainDue(SqlStatement sql) {
+        long now = System.nanoTime();
+        Long last = lastExplainNanos.get(sql.getName());
+        if (last != null && now - last < explainIntervalNanos) {
+            return false;
+        }
+        return last == null
+                ? lastExplainNanos.putIfAbsent(sql.getName(), now) == null
+                : lastExplainNanos.replace(sql.getName(), last, now);
+    }
+
+    private String explain(String boundSql) {
+        StringBuilder plan = new StringBuilder();
+        try (Connection connection = DataSource.getInstance().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(EXPLAIN_PREFIX + boundSql)) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            plan.append("\n    ");
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                plan.append(i == 1 ? "" : " | ").append(metaData.getColumnLabel(i));
+            }
+            while (rs.next()) {
+                plan.append("\n    ");
+                for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                    plan.append(i == 1 ? "" : " | ").append(rs.getString(i));
+                }
+            }
+        } catch (Exception e) {
+            plan.append("\n    EXPLAIN failed: ").append(e.getMessage());
+        }
+        return plan.toString();
+    }
+
+    // the SQL text with the bound parameters as MySQL driver would send it
+    private static String boundSql(SqlStatement sql, PreparedStatement ps) {
+        if (ps == null) {
+            return null;
+        }
+        try {
+            if (ps.isWrapperFor(com.mysql.jdbc.PreparedStatement.class)) {
+                return ps.unwrap(com.mysql.jdbc.PreparedStatement.class).asSql();
+            }
+        } catch (SQLException e) {
+            log.debug("Can't get parameters of " + sql + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static boolean isExplainable(String sql) {
+        String verb = sql.trim().split("\\s+", 2)[0].toUpperCase();
+        return "SELECT".equals(verb) || "UPDATE".equals(verb) || "DELETE".equals(verb);
+    }
+
+    private String caller() {
+        for (StackTraceElement frame : Thread.currentThread().getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.startsWith(callerPackage)
+                    && !className.equals(SlowQueryLog.class.getName())
+                    && !className.equals(JdbcExecutor.class.getName())) {
+                return className + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "unknown";
+    }
+}
@@ -0,0 +1,22 @@
+package dao.jdbc;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * SQL text together with the name it is known by in logs and metrics,
+ * as a rule the name of the constant that holds it
+ */
+@Getter
+@EqualsAndHashCode
+@AllArgsConstructor(staticName = "of")
+public class SqlStatement {
+    private final String name;
+    private final String sql;
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,18 @@
+package dao.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+public interface StatementFactory {
+    /**
+     * returns a statement for the current connection, the caller must close it.
+     * A closed statement goes back to the statement cache of the pool (pool.maxStatements)
+     * and is reused by the next prepare of the same SQL on the same physical connection.
+     *
+     * @param sql determines the statement to prepare
+     * @param autoGeneratedKeys determines Statement.RETURN_GENERATED_KEYS or NO_GENERATED_KEYS
+     * @return prepared statement
+     * @throws SQLException if the statement can't be prepared
+     */
+    PreparedStatement prepareStatement(SqlStatement sql, int autoGeneratedKeys) throws SQLException;
+}
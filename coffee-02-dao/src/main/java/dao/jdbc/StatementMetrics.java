@@ -0,0 +1,89 @@
+package dao.jdbc;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process registry of the execution statistics of statements keyed by the statement
+ * name. It is an ExecutionListener, so it sees every statement executed by JdbcExecutor,
+ * the DAOs register it once on start (see AbstractDao).
+ */
+public class StatementMetrics implements ExecutionListener {
+    private static final double NANOS_IN_MILLI = 1_000_000.0;
+    private static final StatementMetrics INSTANCE = new StatementMetrics();
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private StatementMetrics() {}
+
+    public static StatementMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public void afterExecution(SqlStatement sql, long elapsedNanos, int rows, SQLException error) {
+        entries.computeIfAbsent(sql.getName(), name -> new Entry())
+                .record(elapsedNanos, rows, error != null);
+    }
+
+    /**
+     * returns statistics of the statement with the name
+     *
+     * @param name determines the name of the statement
+     * @return statistics of the statement or null if it was not executed since start or reset
+     */
+    public StatementStats get(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? null : entry.toStats(name);
+    }
+
+    /**
+     * returns statistics of all executed statements
+     *
+     * @return map of statistics sorted by the statement name or empty map
+     *         if no statement was executed since start or reset
+     */
+    public Map<String, StatementStats> snapshot() {
+        Map<String, StatementStats> snapshot = new TreeMap<>();
+        entries.forEach((name, entry) -> snapshot.put(name, entry.toStats(name)));
+        return snapshot;
+    }
+
+    /**
+     * forgets statistics of all statements
+     */
+    public void reset() {
+        entries.clear();
+    }
+
+    private static class Entry {
+        private final AtomicLong executionCount = new AtomicLong();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final AtomicLong rowCount = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LatencyHistogram latencies = new LatencyHistogram();
+
+        void record(long elapsedNanos, int rows, boolean failed) {
+            executionCount.incrementAndGet();
+            if (failed) {
+                errorCount.incrementAndGet();
+            }
+            rowCount.addAndGet(rows);
+            totalNanos.addAndGet(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            latencies.record(elapsedNanos);
+        }
+
+        StatementStats toStats(String name) {
+            return new StatementStats(name, executionCount.get(), errorCount.get(), rowCount.get(),
+                    totalNanos.get() / NANOS_IN_MILLI, maxNanos.get() / NANOS_IN_MILLI,
+                    latencies.percentile(0.50) / NANOS_IN_MILLI,
+                    latencies.percentile(0.95) / NANOS_IN_MILLI,
+                    latencies.percentile(0.99) / NANOS_IN_MILLI);
+        }
+    }
+}
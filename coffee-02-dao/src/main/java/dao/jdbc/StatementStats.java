@@ -0,0 +1,23 @@
+package dao.jdbc;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Snapshot of the execution statistics of one named statement, latencies are in milliseconds
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class StatementStats {
+    private final String name;
+    private final long executionCount;
+    private final long errorCount;
+    private final long rowCount;
+    private final double totalMillis;
+    private final double maxMillis;
+    private final double p50Millis;
+    private final double p95Millis;
+    private final double p99Millis;
+}
@@ -0,0 +1,17 @@
+package dao.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Unchecked wrapper of SQLException thrown while a stream of rows is consumed
+ */
+public class StreamingException extends RuntimeException {
+    public StreamingException(SQLException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+        return (SQLException) super.getCause();
+    }
+}
@@ -0,0 +1,231 @@
+package dao.memory;
+
+import dao.CoffeeOrderDao;
+import entities.CoffeeOrder;
+import org.springframework.stereotype.Repository;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * CoffeeOrderDao on a concurrent map, entities are stored and returned as copies.
+ * Not transactional: changes are visible at once and are not rolled back.
+ */
+@Repository
+public class InMemoryCoffeeOrderDao implements CoffeeOrderDao {
+    // the same order as "ORDER BY order_date DESC, id DESC"
+    private static final Comparator<CoffeeOrder> NEW_TO_OLD =
+            Comparator.comparing(CoffeeOrder::getOrderDate, Comparator.nullsFirst(Comparator.<Timestamp>reverseOrder()))
+                    .thenComparing(Comparator.comparingInt(CoffeeOrder::getId).reversed());
+
+    private final Map<Integer, CoffeeOrder> coffeeOrders = new ConcurrentHashMap<>();
+    // the same stored entities sorted for getPageBefore
+    private final NavigableSet<CoffeeOrder> byOrderDate = new ConcurrentSkipListSet<>(NEW_TO_OLD);
+    private final AtomicInteger ids = new AtomicInteger();
+
+    public InMemoryCoffeeOrderDao() {}
+
+    /**
+     * Saves the entity type <CoffeeOrder> in memory with the id of the entity
+     * if it is assigned (id > 0) or with a generated id
+     *
+     * @param coffeeOrder determine entity with type <CoffeeOrder>
+     * @return saved entity with not null id
+     * @throws SQLException if CoffeeOrder with the same id already exists
+     */
+    @Override
+    public synchronized CoffeeOrder save(CoffeeOrder coffeeOrder) throws SQLException {
+        if (coffeeOrder == null) {
+            return null;
+        }
+        if (coffeeOrder.getId() > 0) {
+            if (coffeeOrders.containsKey(coffeeOrder.getId())) {
+                throw new SQLException("Duplicate id: " + coffeeOrder.getId(),
+                        InMemoryDaos.INTEGRITY_CONSTRAINT_VIOLATION);
+            }
+            ids.accumulateAndGet(coffeeOrder.getId(), Math::max);
+        } else {
+            coffeeOrder.setId(ids.incrementAndGet());
+        }
+        store(copy(coffeeOrder));
+        return coffeeOrder;
+    }
+
+    /**
+     * Saves all CoffeeOrders with assigned ids (id > 0) in memory
+     *
+     * @param coffeeOrderList determines the entities to save
+     * @return the same list or empty list if coffeeOrderList is null or empty
+     * @throws SQLException if CoffeeOrder with the same id already exists
+     * @throws IllegalArgumentException if an entity has no assigned id
+     */
+    @Override
+    public synchronized List<CoffeeOrder> saveAll(List<CoffeeOrder> coffeeOrderList) throws SQLException {
+        if (coffeeOrderList == null || coffeeOrderList.isEmpty()) {
+            return new ArrayList<>();
+        }
+        for (CoffeeOrder coffeeOrder : coffeeOrderList) {
+            if (coffeeOrder.getId() <= 0) {
+                throw new IllegalArgumentException("CoffeeOrder without assigned id: " + coffeeOrder);
+            }
+        }
+        for (CoffeeOrder coffeeOrder : coffeeOrderList) {
+            save(coffeeOrder);
+        }
+        return coffeeOrderList;
+    }
+
+    /**
+     * returns an entity with an id from memory
+     *
+     * @param id determine id of entity
+     * @return entity with type <CoffeeOrder> or null if such an entity was not found
+     */
+    @Override
+    public CoffeeOrder get(Serializable id) {
+        return copy(coffeeOrders.get((Integer) id));
+    }
+
+    /**
+     * update an entity with an id = coffeeOrder.id in memory
+     *
+     * @param coffeeOrder determine a new entity to be updated with id = coffeeOrder.id
+     */
+    @Override
+    public synchronized void update(CoffeeOrder coffeeOrder) {
+        if (coffeeOrder == null || remove(coffeeOrder.getId()) == 0) {
+            return;
+        }
+        store(copy(coffeeOrder));
+    }
+
+    /**
+     * removes from memory an entity with type <CoffeeOrder> and id
+     *
+     * @param id determine id of entity
+     * @return returns the number of deleted entities
+     */
+    @Override
+    public synchronized int delete(Serializable id) {
+        return remove((Integer) id);
+    }
+
+    /**
+     * removes from memory all CoffeeOrders with id in ids
+     *
+     * @param ids determines ids of CoffeeOrders
+     * @return returns the number of deleted entities or 0 if ids is null or empty
+     */
+    @Override
+    public synchronized int deleteAll(Collection<Integer> ids) {
+        int deletedRecords = 0;
+        if (ids != null) {
+            for (Integer id : ids) {
+                deletedRecords += remove(id);
+            }
+        }
+        return deletedRecords;
+    }
+
+    /**
+     * returns all CoffeeOrders ordered by id
+     *
+     * @return stream of CoffeeOrders
+     */
+    @Override
+    public Stream<CoffeeOrder> streamAll() {
+        return coffeeOrders.values().stream()
+                .sorted(Comparator.comparingInt(CoffeeOrder::getId))
+                .map(InMemoryCoffeeOrderDao::copy);
+    }
+
+    /**
+     * returns a page of CoffeeOrders ordered from new to old by order_date and id,
+     * that are older than the order with key (orderDate, id)
+     *
+     * @param orderDate determines order_date of the last order of the previous page
+     *                  or null for the first page
+     * @param id determines id of the last order of the previous page, ignored if orderDate is null
+     * @param pageSize determines the maximum number of orders in the page
+     * @return a list of CoffeeOrders or empty list if there are no older orders
+     */
+    @Override
+    public List<CoffeeOrder> getPageBefore(Timestamp orderDate, int id, int pageSize) {
+        NavigableSet<CoffeeOrder> older = byOrderDate;
+        if (orderDate != null) {
+            CoffeeOrder key = new CoffeeOrder();
+            key.setOrderDate(orderDate);
+            key.setId(id);
+            older = byOrderDate.tailSet(key, false);
+        }
+
+        List<CoffeeOrder> page = new ArrayList<>();
+        for (CoffeeOrder coffeeOrder : older) {
+            if (page.size() >= pageSize) {
+                break;
+            }
+            page.add(copy(coffeeOrder));
+        }
+        return page;
+    }
+
+    /**
+     * returns the oldest CoffeeOrders with order_date before orderDate ordered from old to new
+     * by order_date and id
+     *
+     * @param orderDate determines the date the orders are older than
+     * @param limit determines the maximum number of orders
+     * @return a list of CoffeeOrders or empty list if there are no such orders
+     */
+    @Override
+    public List<CoffeeOrder> getOlderThan(Timestamp orderDate, int limit) {
+        List<CoffeeOrder> list = new ArrayList<>();
+        for (CoffeeOrder coffeeOrder : byOrderDate.descendingSet()) {
+            if (list.size() >= limit || coffeeOrder.getOrderDate() == null
+                    || !coffeeOrder.getOrderDate().before(orderDate)) {
+                break;
+            }
+            list.add(copy(coffeeOrder));
+        }
+        return list;
+    }
+
+    private void store(CoffeeOrder coffeeOrder) {
+        coffeeOrders.put(coffeeOrder.getId(), coffeeOrder);
+        byOrderDate.add(coffeeOrder);
+    }
+
+    private int remove(Integer id) {
+        CoffeeOrder removed = coffeeOrders.remove(id);
+        if (removed == null) {
+            return 0;
+        }
+        byOrderDate.remove(removed);
+        return 1;
+    }
+
+    private static CoffeeOrder copy(CoffeeOrder coffeeOrder) {
+        if (coffeeOrder == null) {
+            return null;
+        }
+        CoffeeOrder copy = new CoffeeOrder();
+        copy.setId(coffeeOrder.getId());
+        copy.setOrderDate(coffeeOrder.getOrderDate() == null ? null : (Timestamp) coffeeOrder.getOrderDate().clone());
+        copy.setCustomerName(coffeeOrder.getCustomerName());
+        copy.setDeliveryAddress(coffeeOrder.getDeliveryAddress());
+        copy.setCost(coffeeOrder.getCost());
+
+        return copy;
+    }
+}
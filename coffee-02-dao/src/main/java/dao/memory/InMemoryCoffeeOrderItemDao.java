@@ -0,0 +1,236 @@
+package dao.memory;
+
+import dao.CoffeeOrderItemDao;
+import entities.CoffeeOrderItem;
+import org.springframework.stereotype.Repository;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * CoffeeOrderItemDao on a concurrent map, entities are stored and returned as copies.
+ * Not transactional: changes are visible at once and are not rolled back,
+ * order_id and type_id are not checked against other DAOs.
+ */
+@Repository
+public class InMemoryCoffeeOrderItemDao implements CoffeeOrderItemDao {
+    private final Map<Integer, CoffeeOrderItem> coffeeOrderItems = new ConcurrentHashMap<>();
+    // ids of CoffeeOrderItems by order_id
+    private final Map<Integer, Set<Integer>> itemIdsByOrderId = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+
+    public InMemoryCoffeeOrderItemDao() {}
+
+    /**
+     * Saves the entity type <CoffeeOrderItem> in memory with the id of the entity
+     * if it is assigned (id > 0) or with a generated id
+     *
+     * @param coffeeOrderItem determine entity with type <CoffeeOrderItem>
+     * @return saved entity with not null id
+     * @throws SQLException if CoffeeOrderItem with the same id already exists
+     */
+    @Override
+    public synchronized CoffeeOrderItem save(CoffeeOrderItem coffeeOrderItem) throws SQLException {
+        if (coffeeOrderItem == null) {
+            return null;
+        }
+        if (coffeeOrderItem.getId() > 0) {
+            if (coffeeOrderItems.containsKey(coffeeOrderItem.getId())) {
+                throw new SQLException("Duplicate id: " + coffeeOrderItem.getId(),
+                        InMemoryDaos.INTEGRITY_CONSTRAINT_VIOLATION);
+            }
+            ids.accumulateAndGet(coffeeOrderItem.getId(), Math::max);
+        } else {
+            coffeeOrderItem.setId(ids.incrementAndGet());
+        }
+        store(copy(coffeeOrderItem));
+        return coffeeOrderItem;
+    }
+
+    /**
+     * returns an entity with an id from memory
+     *
+     * @param id determine id of entity
+     * @return entity with type <CoffeeOrderItem> or null if such an entity was not found
+     */
+    @Override
+    public CoffeeOrderItem get(Serializable id) {
+        return copy(coffeeOrderItems.get((Integer) id));
+    }
+
+    /**
+     * update an entity with an id = coffeeOrderItem.id in memory
+     *
+     * @param coffeeOrderItem determine a new entity to be updated with id = coffeeOrderItem.id
+     */
+    @Override
+    public synchronized void update(CoffeeOrderItem coffeeOrderItem) {
+        if (coffeeOrderItem == null || remove(coffeeOrderItem.getId()) == 0) {
+            return;
+        }
+        store(copy(coffeeOrderItem));
+    }
+
+    /**
+     * removes from memory an entity with type <CoffeeOrderItem> and id
+     *
+     * @param id determine id of entity
+     * @return returns the number of deleted entities
+     */
+    @Override
+    public synchronized int delete(Serializable id) {
+        return remove((Integer) id);
+    }
+
+    /**
+     * get all CoffeeOrderItems for definite CoffeeOrder with id = orderId ordered by id
+     *
+     * @param orderId determines id for CoffeeOrder
+     * @return a list of CoffeeOrderItems for CoffeeOrder with id = orderId or
+     *         empty list if there are no entries
+     */
+    @Override
+    public List<CoffeeOrderItem> getAllForOrderId(Serializable orderId) {
+        List<CoffeeOrderItem> list = new ArrayList<>();
+        Set<Integer> itemIds = itemIdsByOrderId.get((Integer) orderId);
+        if (itemIds != null) {
+            itemIds.stream()
+                    .sorted()
+                    .map(coffeeOrderItems::get)
+                    .filter(coffeeOrderItem -> coffeeOrderItem != null)
+                    .forEach(coffeeOrderItem -> list.add(copy(coffeeOrderItem)));
+        }
+        return list;
+    }
+
+    /**
+     * get all CoffeeOrderItems for CoffeeOrders with id in orderIds
+     *
+     * @param orderIds determines ids for CoffeeOrders
+     * @return a list of CoffeeOrderItems ordered by order_id and id or
+     *         empty list if orderIds is null or empty or there are no entries
+     */
+    @Override
+    public List<CoffeeOrderItem> getAllForOrderIds(Collection<Integer> orderIds) {
+        List<CoffeeOrderItem> list = new ArrayList<>();
+        if (orderIds != null) {
+            orderIds.stream()
+                    .distinct()
+                    .sorted()
+                    .forEach(orderId -> list.addAll(getAllForOrderId(orderId)));
+        }
+        return list;
+    }
+
+    /**
+     * Saves all CoffeeOrderItems in memory with assigned or generated ids
+     *
+     * @param coffeeOrderItemList determines the entities to save
+     * @return the same list with not null ids of saved entities or
+     *         empty list if coffeeOrderItemList is null or empty
+     * @throws SQLException if CoffeeOrderItem with the same id already exists
+     */
+    @Override
+    public synchronized List<CoffeeOrderItem> saveAll(List<CoffeeOrderItem> coffeeOrderItemList)
+            throws SQLException {
+        if (coffeeOrderItemList == null || coffeeOrderItemList.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        for (CoffeeOrderItem coffeeOrderItem : coffeeOrderItemList) {
+            save(coffeeOrderItem);
+        }
+        return coffeeOrderItemList;
+    }
+
+    /**
+     * removes from memory all CoffeeOrderItems of CoffeeOrder with id = orderId
+     *
+     * @param orderId determines id for CoffeeOrder
+     * @return returns the number of deleted entities
+     */
+    @Override
+    public synchronized int deleteAllForOrderId(Serializable orderId) {
+        Set<Integer> itemIds = itemIdsByOrderId.remove((Integer) orderId);
+        if (itemIds == null) {
+            return 0;
+        }
+        for (Integer id : itemIds) {
+            coffeeOrderItems.remove(id);
+        }
+        return itemIds.size();
+    }
+
+    /**
+     * removes from memory all CoffeeOrderItems of CoffeeOrders with id in orderIds
+     *
+     * @param orderIds determines ids for CoffeeOrders
+     * @return returns the number of deleted entities or 0 if orderIds is null or empty
+     */
+    @Override
+    public synchronized int deleteAllForOrderIds(Collection<Integer> orderIds) {
+        int deletedRecords = 0;
+        if (orderIds != null) {
+            for (Integer orderId : orderIds) {
+                deletedRecords += deleteAllForOrderId(orderId);
+            }
+        }
+        return deletedRecords;
+    }
+
+    /**
+     * returns all CoffeeOrderItems ordered by order_id and id
+     *
+     * @return stream of CoffeeOrderItems
+     */
+    @Override
+    public Stream<CoffeeOrderItem> streamAll() {
+        return coffeeOrderItems.values().stream()
+                .sorted(Comparator.comparingInt(CoffeeOrderItem::getOrderId)
+                        .thenComparingInt(CoffeeOrderItem::getId))
+                .map(InMemoryCoffeeOrderItemDao::copy);
+    }
+
+    private void store(CoffeeOrderItem coffeeOrderItem) {
+        coffeeOrderItems.put(coffeeOrderItem.getId(), coffeeOrderItem);
+        itemIdsByOrderId.computeIfAbsent(coffeeOrderItem.getOrderId(), orderId -> ConcurrentHashMap.newKeySet())
+                .add(coffeeOrderItem.getId());
+    }
+
+    private int remove(Integer id) {
+        CoffeeOrderItem removed = coffeeOrderItems.remove(id);
+        if (removed == null) {
+            return 0;
+        }
+        Set<Integer> itemIds = itemIdsByOrderId.get(removed.getOrderId());
+        if (itemIds != null) {
+            itemIds.remove(id);
+            if (itemIds.isEmpty()) {
+                itemIdsByOrderId.remove(removed.getOrderId());
+            }
+        }
+        return 1;
+    }
+
+    private static CoffeeOrderItem copy(CoffeeOrderItem coffeeOrderItem) {
+        if (coffeeOrderItem == null) {
+            return null;
+        }
+        CoffeeOrderItem copy = new CoffeeOrderItem();
+        copy.setId(coffeeOrderItem.getId());
+        copy.setCoffeeTypeId(coffeeOrderItem.getCoffeeTypeId());
+        copy.setOrderId(coffeeOrderItem.getOrderId());
+        copy.setQuantity(coffeeOrderItem.getQuantity());
+
+        return copy;
+    }
+}
@@ -0,0 +1,170 @@
+package dao.memory;
+
+import dao.CoffeeTypeDao;
+import dao.OptimisticLockException;
+import entities.CoffeeType;
+import entities.enums.DisabledFlag;
+import org.springframework.stereotype.Repository;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CoffeeTypeDao on a concurrent map, entities are stored and returned as copies.
+ * Not transactional: changes are visible at once and are not rolled back.
+ */
+@Repository
+public class InMemoryCoffeeTypeDao implements CoffeeTypeDao {
+    private final Map<Integer, CoffeeType> coffeeTypes = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+
+    public InMemoryCoffeeTypeDao() {}
+
+    /**
+     * Saves the entity type <CoffeeType> in memory
+     *
+     * @param coffeeType determine entity with type <CoffeeType>
+     * @return saved entity with not null id
+     * @throws SQLException if CoffeeType with the same type_name already exists
+     */
+    @Override
+    public synchronized CoffeeType save(CoffeeType coffeeType) throws SQLException {
+        if (coffeeType == null) {
+            return null;
+        }
+        checkUniqueTypeName(coffeeType);
+
+        coffeeType.setId(ids.incrementAndGet());
+        coffeeType.setVersion(0);
+        coffeeTypes.put(coffeeType.getId(), copy(coffeeType));
+        return coffeeType;
+    }
+
+    /**
+     * returns an entity with an id from memory
+     *
+     * @param id determine id of entity
+     * @return entity with type <CoffeeType> or null if such an entity was not found
+     */
+    @Override
+    public CoffeeType get(Serializable id) {
+        return copy(coffeeTypes.get((Integer) id));
+    }
+
+    /**
+     * update an entity with an id = coffeeType.id and version = coffeeType.version
+     * in memory and increments coffeeType.version
+     *
+     * @param coffeeType determine a new entity to be updated with id = coffeeType.id
+     * @throws OptimisticLockException if the entity was changed or deleted after coffeeType was read
+     * @throws SQLException if other CoffeeType with the same type_name already exists
+     */
+    @Override
+    public synchronized void update(CoffeeType coffeeType) throws SQLException {
+        if (coffeeType == null) {
+            return;
+        }
+        CoffeeType stored = coffeeTypes.get(coffeeType.getId());
+        if (stored == null || stored.getVersion() != coffeeType.getVersion()) {
+            throw new OptimisticLockException("CoffeeType", coffeeType.getId(), coffeeType.getVersion());
+        }
+        checkUniqueTypeName(coffeeType);
+
+        coffeeType.setVersion(coffeeType.getVersion() + 1);
+        coffeeTypes.put(coffeeType.getId(), copy(coffeeType));
+    }
+
+    /**
+     * removes from memory an entity with type <CoffeeType> and id
+     *
+     * @param id determine id of entity
+     * @return returns the number of deleted entities
+     */
+    @Override
+    public int delete(Serializable id) {
+        return coffeeTypes.remove((Integer) id) == null ? 0 : 1;
+    }
+
+    /**
+     * get all CoffeeTypes ordered by id
+     *
+     * @return a list of all CoffeeTypes or empty list if there are no entries
+     */
+    @Override
+    public List<CoffeeType> getAll() {
+        return find(null);
+    }
+
+    /**
+     * get all CoffeeTypes where CoffeeType.disabled = disabledFlag ordered by id
+     *
+     * @param disabledFlag determines whether ("Y") or not ("N") to show on the UI given CoffeeType
+     * @return a list of CoffeeTypes where CoffeeType.disabled = disabledFlag or
+     *         empty list if there are no entries
+     */
+    @Override
+    public List<CoffeeType> getAllForDisabledFlag(DisabledFlag disabledFlag) {
+        return find(disabledFlag);
+    }
+
+    /**
+     * get all CoffeeTypes with id in ids
+     *
+     * @param ids determines ids of CoffeeTypes
+     * @return a map of found CoffeeTypes by id or
+     *         empty map if ids is null or empty or there are no entries
+     */
+    @Override
+    public Map<Integer, CoffeeType> getAllByIds(Collection<Integer> ids) {
+        Map<Integer, CoffeeType> map = new HashMap<>();
+        if (ids != null) {
+            for (Integer id : ids) {
+                CoffeeType coffeeType = get(id);
+                if (coffeeType != null) {
+                    map.put(id, coffeeType);
+                }
+            }
+        }
+        return map;
+    }
+
+    private List<CoffeeType> find(DisabledFlag disabledFlag) {
+        List<CoffeeType> list = new ArrayList<>();
+        coffeeTypes.values().stream()
+                .filter(coffeeType -> disabledFlag == null || disabledFlag == coffeeType.getDisabled())
+                .sorted((a, b) -> Integer.compare(a.getId(), b.getId()))
+                .forEach(coffeeType -> list.add(copy(coffeeType)));
+        return list;
+    }
+
+    private void checkUniqueTypeName(CoffeeType coffeeType) throws SQLException {
+        for (CoffeeType stored : coffeeTypes.values()) {
+            if (stored.getId() != coffeeType.getId() && stored.getTypeName() != null
+                    && stored.getTypeName().equals(coffeeType.getTypeName())) {
+                throw new SQLException("Duplicate type_name: " + coffeeType.getTypeName(),
+                        InMemoryDaos.INTEGRITY_CONSTRAINT_VIOLATION);
+            }
+        }
+    }
+
+    private static CoffeeType copy(CoffeeType coffeeType) {
+        if (coffeeType == null) {
+            return null;
+        }
+        CoffeeType copy = new CoffeeType();
+        copy.setId(coffeeType.getId());
+        copy.setTypeName(coffeeType.getTypeName());
+        copy.setPrice(coffeeType.getPrice());
+        copy.setDisabled(coffeeType.getDisabled());
+        copy.setVersion(coffeeType.getVersion());
+
+        return copy;
+    }
+}
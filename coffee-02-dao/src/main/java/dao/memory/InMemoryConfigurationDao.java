@@ -0,0 +1,97 @@
+package dao.memory;
+
+import dao.ConfigurationDao;
+import dao.OptimisticLockException;
+import entities.Configuration;
+import org.springframework.stereotype.Repository;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ConfigurationDao on a concurrent map, entities are stored and returned as copies.
+ * Not transactional: changes are visible at once and are not rolled back.
+ */
+@Repository
+public class InMemoryConfigurationDao implements ConfigurationDao {
+    private final Map<String, Configuration> configurations = new ConcurrentHashMap<>();
+
+    public InMemoryConfigurationDao() {}
+
+    /**
+     * Saves the entity type <Configuration> in memory
+     *
+     * @param configuration determine entity with type <Configuration>
+     * @return saved entity or null if configuration is null or configuration.id is null
+     * @throws SQLException if Configuration with the same id already exists
+     */
+    @Override
+    public Configuration save(Configuration configuration) throws SQLException {
+        if (configuration == null || configuration.getId() == null) {
+            return null;
+        }
+        configuration.setVersion(0);
+        if (configurations.putIfAbsent(configuration.getId(), copy(configuration)) != null) {
+            throw new SQLException("Duplicate id: " + configuration.getId(),
+                    InMemoryDaos.INTEGRITY_CONSTRAINT_VIOLATION);
+        }
+        return configuration;
+    }
+
+    /**
+     * returns an entity with an id from memory
+     *
+     * @param id determine id of entity
+     * @return entity with type <Configuration> or null if such an entity was not found
+     */
+    @Override
+    public Configuration get(Serializable id) {
+        return copy(configurations.get((String) id));
+    }
+
+    /**
+     * update an entity with an id = configuration.id and version = configuration.version
+     * in memory and increments configuration.version
+     *
+     * @param configuration determine a new entity to be updated with id = configuration.id
+     * @throws OptimisticLockException if the entity was changed or deleted after configuration was read
+     */
+    @Override
+    public synchronized void update(Configuration configuration) throws OptimisticLockException {
+        if (configuration == null) {
+            return;
+        }
+        Configuration stored = configuration.getId() == null ? null : configurations.get(configuration.getId());
+        if (stored == null || stored.getVersion() != configuration.getVersion()) {
+            throw new OptimisticLockException("Configuration", configuration.getId(), configuration.getVersion());
+        }
+
+        configuration.setVersion(configuration.getVersion() + 1);
+        configurations.put(configuration.getId(), copy(configuration));
+    }
+
+    /**
+     * removes from memory an entity with type <Configuration> and id
+     *
+     * @param id determine id of entity
+     * @return returns the number of deleted entities
+     */
+    @Override
+    public int delete(Serializable id) {
+        return configurations.remove((String) id) == null ? 0 : 1;
+    }
+
+    private static Configuration copy(Configuration configuration) {
+        if (configuration == null) {
+            return null;
+        }
+        Configuration copy = new Configuration();
+        copy.setId(configuration.getId());
+        copy.setValue(configuration.getValue());
+        copy.setVersion(configuration.getVersion());
+
+        return copy;
+    }
+}
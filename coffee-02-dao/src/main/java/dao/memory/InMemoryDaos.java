@@ -0,0 +1,11 @@
+package dao.memory;
+
+/**
+ * Constants shared by the in-memory DAOs
+ */
+final class InMemoryDaos {
+    // SQLState of a duplicate key, the same that MySQL returns
+    static final String INTEGRITY_CONSTRAINT_VIOLATION = "23000";
+
+    private InMemoryDaos() {}
+}
@@ -0,0 +1,23 @@
+package dao.memory;
+
+import dao.IdAllocator;
+import org.springframework.stereotype.Repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * IdAllocator on counters in memory, one counter per sequence
+ */
+@Repository
+public class InMemoryIdAllocator implements IdAllocator {
+    private final Map<String, AtomicInteger> sequences = new ConcurrentHashMap<>();
+
+    public InMemoryIdAllocator() {}
+
+    @Override
+    public int nextId(String sequence) {
+        return sequences.computeIfAbsent(sequence, name -> new AtomicInteger()).incrementAndGet();
+    }
+}
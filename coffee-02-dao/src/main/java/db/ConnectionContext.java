@@ -0,0 +1,39 @@
+package db;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Routing state of the connections of a thread, captured to continue the work on
+ * another thread. The connections are never handed over: a connection and its
+ * statements belong to the thread that got it.
+ */
+@Getter
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class ConnectionContext {
+    private final boolean readOnly;
+    private final boolean written;
+    private final boolean inTransaction;
+
+    /**
+     * @return routing state of the current thread
+     */
+    public static ConnectionContext capture() {
+        return new ConnectionContext(ConnectionManager.isReadOnly(), ConnectionManager.isWritten(),
+                ConnectionManager.isInTransaction());
+    }
+
+    /**
+     * Opens a connection scope on the current thread with the captured routing:
+     * read-only scope and read-your-writes mark. The scope releases the connections
+     * of the thread when closed.
+     *
+     * @return scope to be closed in try-with-resources
+     */
+    public ConnectionScope open() {
+        return ConnectionManager.openScope(this);
+    }
+}
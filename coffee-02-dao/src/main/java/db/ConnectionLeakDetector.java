@@ -0,0 +1,249 @@
+package db;
+
+import org.apache.log4j.Logger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Tracks the connections checked out of a pool: the holding thread, the checkout time
+ * and optionally the checkout stack.
+ * <p>
+ * A connection held longer than leakThreshold is reported once as a leak with the
+ * checkout stack. A connection held longer than reclaimAfter is closed and returned
+ * to the pool, its holder gets SQLException on the next use. A checkout from a pool
+ * with all connections busy is reported as pool exhaustion with the list of holders.
+ */
+class ConnectionLeakDetector {
+    private static Logger log = Logger.getLogger(ConnectionLeakDetector.class);
+    private static final ScheduledExecutorService CHECKER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "connection-leak-detector");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String poolName;
+    private final IntSupplier maxPoolSize;
+    private final long leakThresholdNanos;
+    private final long reclaimAfterNanos;
+    private final boolean captureStack;
+    private final Set<Checkout> checkouts = ConcurrentHashMap.newKeySet();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong reclaimCount = new AtomicLong();
+    private final AtomicLong exhaustionCount = new AtomicLong();
+    private final AtomicLong lastExhaustionReportNanos = new AtomicLong();
+    private final long exhaustionReportIntervalNanos;
+
+    /**
+     * @param poolName determines the pool name in the reports
+     * @param maxPoolSize determines the current maximal size of the pool
+     * @param leakThresholdMillis determines the holding time reported as a leak, 0 - don't report
+     * @param reclaimAfterMillis determines the holding time after which the connection
+     *                           is reclaimed, 0 - never
+     * @param checkIntervalMillis determines the interval of the holding time checks
+     *                            and of the exhaustion reports
+     * @param captureStack determines whether to capture the checkout stack
+     */
+    ConnectionLeakDetector(String poolName, IntSupplier maxPoolSize, long leakThresholdMillis,
+                           long reclaimAfterMillis, long checkIntervalMillis, boolean captureStack) {
+        this.poolName = poolName;
+        this.maxPoolSize = maxPoolSize;
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+        this.reclaimAfterNanos = TimeUnit.MILLISECONDS.toNanos(reclaimAfterMillis);
+        this.captureStack = captureStack;
+        this.exhaustionReportIntervalNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMillis);
+        this.lastExhaustionReportNanos.set(System.nanoTime() - exhaustionReportIntervalNanos);
+    }
+
+    /**
+     * Starts the periodic checks of the holding time, if a leak threshold or
+     * a reclaim time is set
+     *
+     * @param checkIntervalMillis determines the interval of the checks
+     */
+    void start(long checkIntervalMillis) {
+        if (leakThresholdNanos > 0 || reclaimAfterNanos > 0) {
+            CHECKER.scheduleWithFixedDelay(this::check, checkIntervalMillis, checkIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reports pool exhaustion if all connections of the pool are checked out,
+     * to be called before a checkout
+     */
+    void beforeCheckout() {
+        if (checkouts.size() >= maxPoolSize.getAsInt()) {
+            exhaustionCount.incrementAndGet();
+            reportExhaustion("all " + checkouts.size() + " connections are busy");
+        }
+    }
+
+    /**
+     * Reports the holders of the connections if a checkout failed on a full pool
+     *
+     * @param e determines the error of the checkout
+     */
+    void checkoutFailed(SQLException e) {
+        if (checkouts.size() >= maxPoolSize.getAsInt()) {
+            reportExhaustion("checkout failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Registers a checked out connection
+     *
+     * @param connection determines the connection got from the pool
+     * @return the connection that unregisters itself on close
+     */
+    Connection track(Connection connection) {
+        Thread thread = Thread.currentThread();
+        Checkout checkout = new Checkout(connection, thread.getName(),
+                captureStack ? new Exception("Connection checked out by thread " + thread.getName()) : null);
+        checkouts.add(checkout);
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, checkout);
+    }
+
+    /**
+     * Reports the connections held longer than the leak threshold
+     * and reclaims the connections held longer than the reclaim time
+     */
+    void check() {
+        long now = System.nanoTime();
+        for (Checkout checkout : checkouts) {
+            long heldNanos = now - checkout.startNanos;
+            if (reclaimAfterNanos > 0 && heldNanos >= reclaimAfterNanos) {
+                reclaim(checkout, heldNanos);
+            } else if (leakThresholdNanos > 0 && heldNanos >= leakThresholdNanos && !checkout.reported) {
+                checkout.reported = true;
+                leakCount.incrementAndGet();
+                log.warn(String.format("Connection of %s pool held for %d ms by thread %s",
+                        poolName, TimeUnit.NANOSECONDS.toMillis(heldNanos), checkout.threadName), checkout.stack);
+            }
+        }
+    }
+
+    /**
+     * returns the descriptions of the checked out connections from the longest held one
+     *
+     * @return list of "thread, holding time" descriptions or empty list if no connection is checked out
+     */
+    List<String> getHolders() {
+        long now = System.nanoTime();
+        List<Checkout> sorted = new ArrayList<>(checkouts);
+        sorted.sort((first, second) -> Long.compare(first.startNanos, second.startNanos));
+        List<String> holders = new ArrayList<>(sorted.size());
+        for (Checkout checkout : sorted) {
+            holders.add(String.format("thread %s, held %d ms", checkout.threadName,
+                    TimeUnit.NANOSECONDS.toMillis(now - checkout.startNanos)));
+        }
+        return holders;
+    }
+
+    long getLeakCount() {
+        return leakCount.get();
+    }
+
+    long getReclaimCount() {
+        return reclaimCount.get();
+    }
+
+    long getExhaustionCount() {
+        return exhaustionCount.get();
+    }
+
+    private void reclaim(Checkout checkout, long heldNanos) {
+        if (!checkouts.remove(checkout)) {
+            return;
+        }
+        checkout.reclaimed = true;
+        reclaimCount.incrementAndGet();
+        log.error(String.format("Connection of %s pool reclaimed after %d ms from thread %s",
+                poolName, TimeUnit.NANOSECONDS.toMillis(heldNanos), checkout.threadName), checkout.stack);
+        try {
+            // the pool rolls back the unfinished transaction
+            checkout.connection.close();
+        } catch (SQLException e) {
+            log.error("Error closing reclaimed connection " + e.getMessage());
+        }
+    }
+
+    // not more often than once in the check interval, a starving pool would flood the log
+    private void reportExhaustion(String reason) {
+        long now = System.nanoTime();
+        long last = lastExhaustionReportNanos.get();
+        if (now - last < exhaustionReportIntervalNanos || !lastExhaustionReportNanos.compareAndSet(last, now)) {
+            return;
+        }
+        StringBuilder message = new StringBuilder()
+                .append("Connection pool ").append(poolName).append(" exhausted, ").append(reason)
+                .append(", holders:");
+        for (String holder : getHolders()) {
+            message.append("\n    ").append(holder);
+        }
+        log.warn(message);
+    }
+
+    /**
+     * A checked out connection, the invocation handler of its proxy
+     */
+    private class Checkout implements InvocationHandler {
+        private final Connection connection;
+        private final String threadName;
+        private final Exception stack;
+        private final long startNanos = System.nanoTime();
+        private volatile boolean reported;
+        private volatile boolean reclaimed;
+
+        Checkout(Connection connection, String threadName, Exception stack) {
+            this.connection = connection;
+            this.threadName = threadName;
+            this.stack = stack;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    checkouts.remove(this);
+                    if (reclaimed) {
+                        return null;
+                    }
+                    break;
+                case "isClosed":
+                    if (reclaimed) {
+                        return true;
+                    }
+                    break;
+                default:
+                    if (reclaimed) {
+                        throw new SQLException("Connection was reclaimed by the leak detector of "
+                                + poolName + " pool");
+                    }
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
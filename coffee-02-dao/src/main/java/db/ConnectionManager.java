@@ -3,20 +3,269 @@ package db;
 import org.apache.log4j.Logger;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 
 public class ConnectionManager {
     private static Logger log = Logger.getLogger(ConnectionManager.class);
     private static ThreadLocal<Connection> tl = new ThreadLocal<>();
+    private static ThreadLocal<Connection> replicaTl = new ThreadLocal<>();
+    private static ThreadLocal<Integer> scopeDepth = new ThreadLocal<>();
+    private static ThreadLocal<Integer> readOnlyDepth = new ThreadLocal<>();
+    // set by a write, keeps the reads on the primary until the connection is released
+    private static ThreadLocal<Boolean> written = new ThreadLocal<>();
+    // the transaction of the current thread, it starts on the first connection got after beginTransaction
+    private static ThreadLocal<Transaction> transaction = new ThreadLocal<>();
 
+    /**
+     * returns the connection bound to the current thread: the replica connection inside
+     * a read-only scope, the primary connection otherwise. A read-only scope still gets
+     * the primary connection after a write or inside a transaction of the thread,
+     * so the thread always reads its own writes.
+     *
+     * @return connection bound to the current thread
+     * @throws DbManagerException if a connection can't be got from the pool
+     */
     public static Connection getConnection() throws DbManagerException {
         try {
-            if (tl.get() == null) {
-                tl.set(DataSource.getInstance().getConnection());
+            Connection connection;
+            if (isReadOnly() && !isPrimaryRequired()) {
+                if (replicaTl.get() == null) {
+                    replicaTl.set(DataSource.getReplicaInstance().getConnection());
+                }
+                connection = replicaTl.get();
+            } else {
+                if (tl.get() == null) {
+                    tl.set(DataSource.getInstance().getConnection());
+                }
+                connection = tl.get();
             }
-            return tl.get();
+            Transaction pending = transaction.get();
+            if (pending != null && pending.connection == null) {
+                pending.start(connection);
+            }
+            return connection;
         } catch (Exception e) {
             log.error("Error getting connection " + e.getMessage());
             throw new DbManagerException("Error getting connection " +  e.getMessage());
         }
     }
+
+    /**
+     * Begins a transaction of the current thread. The transaction starts on the first connection
+     * got after it: autocommit is turned off and the read-only mode and isolation are set then,
+     * so work that never reaches the database doesn't take a connection from the pool.
+     * A read-write transaction goes to the primary, a read-only one inside a read-only scope
+     * may go to the replica.
+     *
+     * @param readOnly determines whether the transaction only reads
+     * @param isolation determines the isolation level, one of Connection.TRANSACTION_* or
+     *                  TransactionTemplate.DEFAULT_ISOLATION
+     */
+    static void beginTransaction(boolean readOnly, int isolation) {
+        if (!readOnly) {
+            markWritten();
+        }
+        transaction.set(new Transaction(readOnly, isolation));
+    }
+
+    /**
+     * Commits the transaction of the current thread, if it has got a connection
+     *
+     * @throws SQLException if the transaction can't be committed
+     */
+    static void commit() throws SQLException {
+        Transaction current = transaction.get();
+        if (current != null && current.connection != null) {
+            current.connection.commit();
+            current.committed = true;
+        }
+    }
+
+    /**
+     * Ends the transaction of the current thread: rolls back what isn't committed and
+     * restores autocommit, read-only mode and isolation of the connection
+     */
+    static void endTransaction() {
+        Transaction current = transaction.get();
+        transaction.remove();
+        if (current != null && current.connection != null) {
+            current.end();
+        }
+    }
+
+    /**
+     * Opens a read-only scope for the current thread: inside the scope getConnection()
+     * returns the replica connection, unless the thread has written or is in a transaction.
+     * Nested scopes are allowed.
+     *
+     * @return scope to be closed in try-with-resources
+     */
+    public static ReadOnlyScope openReadOnlyScope() {
+        Integer depth = readOnlyDepth.get();
+        readOnlyDepth.set(depth == null ? 1 : depth + 1);
+        return new ReadOnlyScope();
+    }
+
+    static void closeReadOnlyScope() {
+        Integer depth = readOnlyDepth.get();
+        if (depth == null || depth <= 1) {
+            readOnlyDepth.remove();
+        } else {
+            readOnlyDepth.set(depth - 1);
+        }
+    }
+
+    /**
+     * Marks that the current thread writes to the primary. Until the connection is
+     * released all reads of the thread go to the primary, the replica may lag behind.
+     */
+    public static void markWritten() {
+        written.set(Boolean.TRUE);
+    }
+
+    /**
+     * Opens a connection scope on the current thread with the routing of the context
+     * captured on another thread
+     *
+     * @param context determines the captured routing
+     * @return scope to be closed in try-with-resources
+     */
+    static ConnectionScope openScope(ConnectionContext context) {
+        ConnectionScope scope = openScope();
+        if (context.isWritten()) {
+            markWritten();
+        }
+        if (context.isReadOnly()) {
+            scope.closeWith(openReadOnlyScope());
+        }
+        return scope;
+    }
+
+    static boolean isReadOnly() {
+        return readOnlyDepth.get() != null;
+    }
+
+    static boolean isWritten() {
+        return written.get() != null;
+    }
+
+    /**
+     * @return true if the primary connection of the current thread is in a transaction
+     */
+    static boolean isInTransaction() {
+        return transaction.get() != null || isPrimaryInTransaction();
+    }
+
+    private static boolean isPrimaryInTransaction() {
+        Connection connection = tl.get();
+        try {
+            return connection != null && !connection.isClosed() && !connection.getAutoCommit();
+        } catch (SQLException e) {
+            log.error("Error reading connection state " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean isPrimaryRequired() {
+        return written.get() != null || isPrimaryInTransaction();
+    }
+
+    /**
+     * Opens a connection scope for the current thread. The connection is bound lazily on
+     * the first getConnection() call inside the scope and returned to the pool when the
+     * outermost scope is closed. Nested scopes share the connection of the outer one.
+     *
+     * @return scope to be closed in try-with-resources
+     */
+    public static ConnectionScope openScope() {
+        Integer depth = scopeDepth.get();
+        scopeDepth.set(depth == null ? 1 : depth + 1);
+        return new ConnectionScope();
+    }
+
+    static void closeScope() {
+        Integer depth = scopeDepth.get();
+        if (depth == null || depth <= 1) {
+            scopeDepth.remove();
+            releaseConnection();
+        } else {
+            scopeDepth.set(depth - 1);
+        }
+    }
+
+    /**
+     * Unbinds the connections of the current thread and returns them to the pools.
+     * An unfinished transaction is rolled back and autocommit is restored first.
+     */
+    public static void releaseConnection() {
+        written.remove();
+        transaction.remove();
+        release(replicaTl);
+        release(tl);
+    }
+
+    private static void release(ThreadLocal<Connection> threadConnection) {
+        Connection connection = threadConnection.get();
+        if (connection == null) {
+            return;
+        }
+        threadConnection.remove();
+        try {
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Error resetting connection before release " + e.getMessage());
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                log.error("Error releasing connection " + e.getMessage());
+            }
+        }
+    }
+
+    private static class Transaction {
+        private final boolean readOnly;
+        private final int isolation;
+        private Connection connection;
+        private int previousIsolation;
+        private boolean committed;
+
+        Transaction(boolean readOnly, int isolation) {
+            this.readOnly = readOnly;
+            this.isolation = isolation;
+        }
+
+        void start(Connection connection) throws SQLException {
+            this.connection = connection;
+            previousIsolation = connection.getTransactionIsolation();
+            // the characteristics of a transaction are set before it begins
+            if (readOnly) {
+                connection.setReadOnly(true);
+            }
+            if (isolation != TransactionTemplate.DEFAULT_ISOLATION && isolation != previousIsolation) {
+                connection.setTransactionIsolation(isolation);
+            }
+            connection.setAutoCommit(false);
+        }
+
+        void end() {
+            try {
+                if (!committed && !connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+                connection.setAutoCommit(true);
+                if (readOnly) {
+                    connection.setReadOnly(false);
+                }
+                if (connection.getTransactionIsolation() != previousIsolation) {
+                    connection.setTransactionIsolation(previousIsolation);
+                }
+            } catch (SQLException e) {
+                log.error("Error restoring connection after transaction " + e.getMessage());
+            }
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package db;
+
+/**
+ * Scope of the connection bound to the current thread, for use in try-with-resources:
+ * <pre>
+ * try (ConnectionScope scope = ConnectionManager.openScope()) {
+ *     ... dao calls ...
+ * }
+ * </pre>
+ * The connection is returned to the pool when the outermost scope is closed.
+ */
+public class ConnectionScope implements AutoCloseable {
+    private boolean closed = false;
+    private ReadOnlyScope readOnlyScope;
+
+    ConnectionScope() {}
+
+    void closeWith(ReadOnlyScope readOnlyScope) {
+        this.readOnlyScope = readOnlyScope;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            if (readOnlyScope != null) {
+                readOnlyScope.close();
+            }
+            ConnectionManager.closeScope();
+        }
+    }
+}
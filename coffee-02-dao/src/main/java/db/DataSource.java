@@ -1,23 +1,39 @@
 package db;
 
 import com.mchange.v2.c3p0.ComboPooledDataSource;
+import org.apache.log4j.Logger;
 
 import java.beans.PropertyVetoException;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class DataSource {
+    private static Logger log = Logger.getLogger(DataSource.class);
+
+    private static final String REPLICA_PREFIX = "replica.";
     private static volatile DataSource INSTANCE = null;
+    private static volatile DataSource REPLICA_INSTANCE = null;
     private ComboPooledDataSource pooledDatasource;
 
     private final String URL;
     private final String DRIVER;
     private final String USER;
     private final String PASSWORD;
+    // "" for the primary, "replica." for the replica settings
+    private final String prefix;
+
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong acquireNanosTotal = new AtomicLong();
+    private final AtomicLong acquireNanosMax = new AtomicLong();
+    private final ConnectionLeakDetector leakDetector;
 
-    {
+    private DataSource(String prefix) throws IOException, SQLException, PropertyVetoException {
+        this.prefix = prefix;
         ResourceBundle rb = ResourceBundle.getBundle("db_coffee");
         if (rb == null) {
             URL = "UNDEFINED";
@@ -26,36 +42,63 @@ public class DataSource {
             DRIVER = "com.mysql.jdbc.Driver";
             System.out.println("Bundle for db was not initialized");
         } else {
-            URL = rb.getString("url");
-            USER = rb.getString("login");
-            PASSWORD = rb.getString("password");
+            // the replica uses the primary settings it doesn't override
+            URL = DbProperties.getString(prefix + "url", rb.getString("url"));
+            USER = DbProperties.getString(prefix + "login", rb.getString("login"));
+            PASSWORD = DbProperties.getString(prefix + "password", rb.getString("password"));
             DRIVER = rb.getString("driver");
         }
-    }
 
-    private DataSource() throws IOException, SQLException, PropertyVetoException {
         pooledDatasource = new ComboPooledDataSource();
         pooledDatasource.setDriverClass(DRIVER); //loads the jdbc driver
         pooledDatasource.setJdbcUrl(URL);
         pooledDatasource.setUser(USER);
         pooledDatasource.setPassword(PASSWORD);
 
-        // the settings below are optional -- c3p0 can work with defaults
-        pooledDatasource.setMinPoolSize(10);
-        pooledDatasource.setAcquireIncrement(5);
-        pooledDatasource.setMaxPoolSize(20);
-        pooledDatasource.setMaxStatements(180);
-        pooledDatasource.setInitialPoolSize(10);
+        // pool sizing
+        pooledDatasource.setInitialPoolSize(poolInt("pool.initialPoolSize", 10));
+        pooledDatasource.setMinPoolSize(poolInt("pool.minPoolSize", 10));
+        pooledDatasource.setMaxPoolSize(poolInt("pool.maxPoolSize", 20));
+        pooledDatasource.setAcquireIncrement(poolInt("pool.acquireIncrement", 5));
+        // timeouts, 0 means never
+        pooledDatasource.setCheckoutTimeout(poolInt("pool.checkoutTimeoutMillis", 0));
+        pooledDatasource.setMaxIdleTime(poolInt("pool.maxIdleTimeSeconds", 0));
+        pooledDatasource.setMaxConnectionAge(poolInt("pool.maxConnectionAgeSeconds", 0));
+        pooledDatasource.setIdleConnectionTestPeriod(poolInt("pool.idleConnectionTestPeriodSeconds", 0));
+        pooledDatasource.setAcquireRetryAttempts(poolInt("pool.acquireRetryAttempts", 30));
+        pooledDatasource.setAcquireRetryDelay(poolInt("pool.acquireRetryDelayMillis", 1000));
+        // statement cache
+        pooledDatasource.setMaxStatements(poolInt("pool.maxStatements", 180));
+        pooledDatasource.setMaxStatementsPerConnection(poolInt("pool.maxStatementsPerConnection", 0));
 
+        long leakCheckIntervalMillis = TimeUnit.SECONDS.toMillis(poolInt("pool.leakCheckIntervalSeconds", 10));
+        leakDetector = new ConnectionLeakDetector(prefix.isEmpty() ? "primary" : "replica",
+                pooledDatasource::getMaxPoolSize,
+                TimeUnit.SECONDS.toMillis(poolInt("pool.leakThresholdSeconds", 60)),
+                TimeUnit.SECONDS.toMillis(poolInt("pool.reclaimAfterSeconds", 0)),
+                leakCheckIntervalMillis,
+                DbProperties.getBoolean(prefix + "pool.leakStackTraces",
+                        DbProperties.getBoolean("pool.leakStackTraces", true)));
+        leakDetector.start(leakCheckIntervalMillis);
+
+        log.info(String.format("Connection pool %s: min %d, max %d, increment %d, maxStatements %d",
+                prefix.isEmpty() ? "primary" : "replica",
+                pooledDatasource.getMinPoolSize(), pooledDatasource.getMaxPoolSize(),
+                pooledDatasource.getAcquireIncrement(), pooledDatasource.getMaxStatements()));
     }
 
+    /**
+     * returns the data source of the primary database, all writes go to it
+     *
+     * @return primary data source
+     */
     public static DataSource getInstance() throws PropertyVetoException, SQLException, IOException {
         DataSource instance = INSTANCE;
         if (instance == null) {
             synchronized (DataSource.class) {
                 instance = INSTANCE;
                 if (instance == null) {
-                    INSTANCE = instance = new DataSource();
+                    INSTANCE = instance = new DataSource("");
                 }
             }
         }
@@ -63,8 +106,123 @@ public class DataSource {
         return instance;
     }
 
+    /**
+     * returns the data source of the read replica configured by the "replica.url" setting,
+     * or the primary data source if there is no replica
+     *
+     * @return replica data source or primary data source
+     */
+    public static DataSource getReplicaInstance() throws PropertyVetoException, SQLException, IOException {
+        if (!isReplicaConfigured()) {
+            return getInstance();
+        }
+        DataSource instance = REPLICA_INSTANCE;
+        if (instance == null) {
+            synchronized (DataSource.class) {
+                instance = REPLICA_INSTANCE;
+                if (instance == null) {
+                    REPLICA_INSTANCE = instance = new DataSource(REPLICA_PREFIX);
+                }
+            }
+        }
+
+        return instance;
+    }
+
+    public static boolean isReplicaConfigured() {
+        return DbProperties.getString(REPLICA_PREFIX + "url", null) != null;
+    }
+
+    /**
+     * returns a connection of the pool, it is registered by the leak detector until closed
+     *
+     * @return connection to be closed by the caller
+     * @throws SQLException if a connection can't be got from the pool
+     */
     public Connection getConnection() throws SQLException {
-        return pooledDatasource.getConnection();
+        leakDetector.beforeCheckout();
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = pooledDatasource.getConnection();
+        } catch (SQLException e) {
+            leakDetector.checkoutFailed(e);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        acquireCount.incrementAndGet();
+        acquireNanosTotal.addAndGet(elapsed);
+        acquireNanosMax.accumulateAndGet(elapsed, Math::max);
+
+        return leakDetector.track(connection);
     }
-}
 
+    /**
+     * returns the threads holding connections of the pool and for how long
+     *
+     * @return list of "thread, holding time" descriptions from the longest held connection
+     */
+    public List<String> getConnectionHolders() {
+        return leakDetector.getHolders();
+    }
+
+    /**
+     * Changes the pool bounds without a restart. c3p0 resets the pool on a configuration
+     * change: idle connections are replaced, checked out ones stay valid until returned.
+     *
+     * @param minPoolSize determines the new minimal number of pooled connections
+     * @param maxPoolSize determines the new maximal number of pooled connections
+     * @throws IllegalArgumentException if minPoolSize < 0 or maxPoolSize < minPoolSize or
+     *                                  maxPoolSize < 1
+     */
+    public synchronized void resizePool(int minPoolSize, int maxPoolSize) {
+        if (minPoolSize < 0 || maxPoolSize < 1 || maxPoolSize < minPoolSize) {
+            throw new IllegalArgumentException(String.format("Invalid pool size: min %d, max %d",
+                    minPoolSize, maxPoolSize));
+        }
+        // keep min <= max at every step
+        if (maxPoolSize < pooledDatasource.getMinPoolSize()) {
+            pooledDatasource.setMinPoolSize(minPoolSize);
+            pooledDatasource.setMaxPoolSize(maxPoolSize);
+        } else {
+            pooledDatasource.setMaxPoolSize(maxPoolSize);
+            pooledDatasource.setMinPoolSize(minPoolSize);
+        }
+        // c3p0 expects min <= initial <= max whenever it rebuilds the pool
+        pooledDatasource.setInitialPoolSize(
+                Math.min(Math.max(pooledDatasource.getInitialPoolSize(), minPoolSize), maxPoolSize));
+        log.info(String.format("Connection pool %s resized: min %d, max %d",
+                prefix.isEmpty() ? "primary" : "replica", minPoolSize, maxPoolSize));
+    }
+
+    /**
+     * returns the current state of the pool and the connection acquire latency since start
+     *
+     * @return snapshot of pool metrics
+     * @throws SQLException if the pool state can't be read
+     */
+    public PoolMetrics getPoolMetrics() throws SQLException {
+        long count = acquireCount.get();
+        double nanosInMilli = 1_000_000.0;
+
+        return new PoolMetrics(
+                pooledDatasource.getMinPoolSize(),
+                pooledDatasource.getMaxPoolSize(),
+                pooledDatasource.getNumConnectionsDefaultUser(),
+                pooledDatasource.getNumBusyConnectionsDefaultUser(),
+                pooledDatasource.getNumIdleConnectionsDefaultUser(),
+                pooledDatasource.getNumThreadsAwaitingCheckoutDefaultUser(),
+                count,
+                count == 0 ? 0 : acquireNanosTotal.get() / nanosInMilli / count,
+                acquireNanosMax.get() / nanosInMilli,
+                leakDetector.getExhaustionCount(),
+                leakDetector.getLeakCount(),
+                leakDetector.getReclaimCount(),
+                pooledDatasource.getStatementCacheNumStatementsDefaultUser());
+    }
+
+    private int poolInt(String key, int defaultValue) {
+        return DbProperties.getInt(prefix + key, DbProperties.getInt(key, defaultValue));
+    }
+}
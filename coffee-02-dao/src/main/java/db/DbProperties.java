@@ -0,0 +1,51 @@
+package db;
+
+import org.apache.log4j.Logger;
+
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+
+/**
+ * Typed access to the optional settings of the db_coffee bundle.
+ * A missing or malformed value falls back to the given default.
+ */
+public class DbProperties {
+    private static Logger log = Logger.getLogger(DbProperties.class);
+    private static final String BUNDLE_NAME = "db_coffee";
+
+    private DbProperties() {}
+
+    public static String getString(String key, String defaultValue) {
+        try {
+            String value = ResourceBundle.getBundle(BUNDLE_NAME).getString(key).trim();
+            return value.isEmpty() ? defaultValue : value;
+        } catch (MissingResourceException e) {
+            return defaultValue;
+        }
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            log.error("Invalid value [" + value + "] for key " + key + ", use default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.error("Invalid value [" + value + "] for key " + key + ", use default " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
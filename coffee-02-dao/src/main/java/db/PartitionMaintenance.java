@@ -0,0 +1,260 @@
+package db;
+
+import org.apache.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the partitions of CoffeeOrder and CoffeeOrderItem ahead of time and merges
+ * the old empty ones into their neighbours (see migration V3).
+ * <p>
+ * CoffeeOrder is partitioned by id, CoffeeOrderItem by order_id, a partition per
+ * partition.orderIds order ids. Partitions are kept for partition.rangesAhead ranges above
+ * the order ids given out by IdSequence. New partitions are split off p_future while it is
+ * still empty, so the split doesn't copy rows. The first split of a table moves all its rows
+ * into p_history.
+ * <p>
+ * A partition below the given out order ids that has become empty (the orders are archived
+ * or deleted) is merged with the next partition, so the number of partitions doesn't grow
+ * with the age of the shop. Rows of such a range may still come late: IdSequence reserves
+ * blocks of ids ahead, and the journal and group commit write orders after the fact.
+ * The merge is one REORGANIZE PARTITION, so a row inserted after the emptiness check is
+ * kept in the merged partition, the same as a row inserted after the merge.
+ */
+public class PartitionMaintenance {
+    private static Logger log = Logger.getLogger(PartitionMaintenance.class);
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final String HISTORY_PARTITION = "p_history";
+    private static final String LOCK_NAME = "PartitionMaintenance";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private static final String GET_LAST_BOUND_SQL = "SELECT PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL " +
+            "AND PARTITION_NAME <> '" + FUTURE_PARTITION + "' ORDER BY PARTITION_ORDINAL_POSITION DESC LIMIT 1";
+    private static final String IS_PARTITIONED_SQL = "SELECT COUNT(*) FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME = '" + FUTURE_PARTITION + "'";
+    private static final String GET_PARTITIONS_SQL = "SELECT PARTITION_NAME, PARTITION_DESCRIPTION " +
+            "FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? " +
+            "AND PARTITION_NAME IS NOT NULL ORDER BY PARTITION_ORDINAL_POSITION";
+    private static final String MAXVALUE = "MAXVALUE";
+    private static final String GET_ORDER_ID_FRONTIER_SQL = "SELECT GREATEST(" +
+            "COALESCE((SELECT next_id FROM IdSequence WHERE name = 'CoffeeOrder'), 0), " +
+            "COALESCE((SELECT MAX(id) + 1 FROM CoffeeOrder), 0))";
+
+    private final int orderIds;
+    private final int rangesAhead;
+    private ScheduledExecutorService scheduler;
+
+    public PartitionMaintenance() {
+        this.orderIds = DbProperties.getInt("partition.orderIds", 100000);
+        this.rangesAhead = DbProperties.getInt("partition.rangesAhead", 2);
+    }
+
+    /**
+     * Creates the missing partitions at once and then every partition.checkIntervalHours hours,
+     * does nothing if partition.maintenance.enabled=false
+     */
+    public void start() {
+        if (!DbProperties.getBoolean("partition.maintenance.enabled", true)) {
+            return;
+        }
+        run();
+        long interval = DbProperties.getLong("partition.checkIntervalHours", 12);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partition-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::run, interval, interval, TimeUnit.HOURS);
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Creates the partitions missing for the given out order ids, merges the empty ones below them
+     *
+     * @return the number of created and merged partitions
+     * @throws Exception if the partitions can't be read, created or merged
+     */
+    public int ensurePartitions() throws Exception {
+        try (Connection connection = DataSource.getInstance().getConnection()) {
+            lock(connection);
+            try {
+                long frontier = getOrderIdFrontier(connection);
+                int changed = 0;
+                for (String table : new String[]{"CoffeeOrder", "CoffeeOrderItem"}) {
+                    if (isPartitioned(connection, table)) {
+                        changed += mergeEmptyPartitions(connection, table, frontier)
+                                + ensureRangePartitions(connection, table, frontier);
+                    }
+                }
+                return changed;
+            } finally {
+                unlock(connection);
+            }
+        }
+    }
+
+    /**
+     * Merges every run of empty partitions of the table with all values below frontier
+     * into the partition after the run
+     *
+     * @param connection determines the connection to the database
+     * @param table determines the table partitioned by RANGE with p_future
+     * @param frontier determines the first value that may still be inserted
+     * @return the number of merged empty partitions
+     * @throws SQLException if the partitions can't be read or merged
+     */
+    static int mergeEmptyPartitions(Connection connection, String table, long frontier) throws SQLException {
+        List<String> partitions = new ArrayList<>();
+        List<String> bounds = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(GET_PARTITIONS_SQL)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    partitions.add(rs.getString(1));
+                    bounds.add(rs.getString(2));
+                }
+            }
+        }
+
+        int merged = 0;
+        List<String> empty = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            String bound = bounds.get(i);
+            boolean old = !MAXVALUE.equals(bound) && Long.parseLong(bound) <= frontier;
+            if (old && isEmpty(connection, table, partitions.get(i))) {
+                empty.add(partitions.get(i));
+            } else if (!empty.isEmpty()) {
+                // the last partition is p_future, so every run has a partition after it
+                merge(connection, table, empty, partitions.get(i), bound);
+                merged += empty.size();
+                empty.clear();
+            }
+        }
+        return merged;
+    }
+
+    private void run() {
+        try {
+            int changed = ensurePartitions();
+            if (changed > 0) {
+                log.info("Created and merged partitions: " + changed);
+            }
+        } catch (Exception e) {
+            log.error("Can't maintain partitions: " + e.getMessage());
+        }
+    }
+
+    private int ensureRangePartitions(Connection connection, String table, long frontier) throws SQLException {
+        String lastBound = getLastBound(connection, table);
+        Long last = lastBound == null ? null : Long.valueOf(lastBound);
+
+        int created = 0;
+        long bound = (frontier / orderIds + 1) * orderIds;
+        if (last != null) {
+            // fill the ranges between the last partition and the frontier as well
+            bound = Math.min(bound, last + orderIds);
+        }
+        long lastNeeded = (frontier / orderIds + 1 + rangesAhead) * orderIds;
+        for (; bound <= lastNeeded; bound += orderIds) {
+            if (last != null && bound <= last) {
+                continue;
+            }
+            String partition = last == null ? HISTORY_PARTITION : "p" + (bound - orderIds);
+            split(connection, table, partition, String.valueOf(bound));
+            last = bound;
+            created++;
+        }
+        return created;
+    }
+
+    private static void split(Connection connection, String table, String partition, String bound)
+            throws SQLException {
+        String sql = String.format("ALTER TABLE %s REORGANIZE PARTITION %s INTO (PARTITION %s VALUES LESS THAN (%s), " +
+                "PARTITION %s VALUES LESS THAN (MAXVALUE))", table, FUTURE_PARTITION, partition, bound, FUTURE_PARTITION);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+        log.info(String.format("Partition %s of %s created: values less than %s", partition, table, bound));
+    }
+
+    private static void merge(Connection connection, String table, List<String> empty, String next, String bound)
+            throws SQLException {
+        String sql = String.format("ALTER TABLE %s REORGANIZE PARTITION %s, %s " +
+                "INTO (PARTITION %s VALUES LESS THAN (%s))", table, String.join(", ", empty), next, next, bound);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+        log.info(String.format("Empty partitions %s of %s merged into %s", empty, table, next));
+    }
+
+    private static long getOrderIdFrontier(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(GET_ORDER_ID_FRONTIER_SQL)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static boolean isEmpty(Connection connection, String table, String partition) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     String.format("SELECT 1 FROM %s PARTITION (%s) LIMIT 1", table, partition))) {
+            return !rs.next();
+        }
+    }
+
+    private static boolean isPartitioned(Connection connection, String table) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(IS_PARTITIONED_SQL)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    // upper bound of the last partition before p_future or null if there is only p_future
+    private static String getLastBound(Connection connection, String table) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(GET_LAST_BOUND_SQL)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    private static void lock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Can't get partition maintenance lock");
+                }
+            }
+        }
+    }
+
+    private static void unlock(Connection connection) {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            log.error("Can't release partition maintenance lock: " + e.getMessage());
+        }
+    }
+}
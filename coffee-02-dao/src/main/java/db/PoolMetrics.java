@@ -0,0 +1,30 @@
+package db;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Snapshot of the connection pool state, of the connection acquire latency
+ * of the leak detector counters and of the statement cache
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PoolMetrics {
+    private final int minPoolSize;
+    private final int maxPoolSize;
+    private final int totalConnections;
+    private final int busyConnections;
+    private final int idleConnections;
+    private final int threadsAwaitingCheckout;
+    private final long acquireCount;
+    private final double averageAcquireMillis;
+    private final double maxAcquireMillis;
+    // checkouts from a pool with all connections busy
+    private final long exhaustionCount;
+    private final long leakCount;
+    private final long reclaimCount;
+    // statements kept open by the statement cache of the pool for reuse
+    private final int cachedStatements;
+}
@@ -0,0 +1,24 @@
+package db;
+
+/**
+ * Read-only scope of the current thread, for use in try-with-resources:
+ * <pre>
+ * try (ReadOnlyScope readOnly = ConnectionManager.openReadOnlyScope()) {
+ *     ... dao reads ...
+ * }
+ * </pre>
+ * Inside the scope the reads go to the replica, see ConnectionManager.getConnection().
+ */
+public class ReadOnlyScope implements AutoCloseable {
+    private boolean closed = false;
+
+    ReadOnlyScope() {}
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            ConnectionManager.closeReadOnlyScope();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package db;
+
+import org.apache.log4j.Logger;
+
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs work in a transaction on the connection of the current thread.
+ * <p>
+ * The transaction is committed when the work returns and rolled back when it throws,
+ * autocommit, read-only mode and isolation of the connection are restored in both cases.
+ * A transaction failed on an InnoDB deadlock or lock wait timeout is retried up to
+ * tx.maxRetries times after a random pause of up to tx.retryBackoffMillis * 2^attempt ms,
+ * so the work must not have effects outside the database. Work started inside another
+ * transaction of the thread is a part of it: it is neither committed nor retried on its own.
+ */
+public class TransactionTemplate {
+    private static Logger log = Logger.getLogger(TransactionTemplate.class);
+    /**
+     * isolation level of the connection is kept
+     */
+    public static final int DEFAULT_ISOLATION = -1;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    private static final String SERIALIZATION_FAILURE = "40001";
+
+    private static final int MAX_RETRIES = DbProperties.getInt("tx.maxRetries", 3);
+    private static final long RETRY_BACKOFF_MILLIS = DbProperties.getLong("tx.retryBackoffMillis", 20);
+    // set while the current thread runs a transaction of the template
+    private static ThreadLocal<Boolean> running = new ThreadLocal<>();
+
+    private TransactionTemplate() {}
+
+    /**
+     * Runs the work in a transaction. A read-only transaction goes to the replica unless
+     * the thread has written before and runs with Connection.setReadOnly(true), so MySQL
+     * doesn't assign a transaction id to it. A read-write one goes to the primary.
+     *
+     * @param readOnly determines whether the work only reads
+     * @param isolation determines the isolation level, one of Connection.TRANSACTION_* or
+     *                  DEFAULT_ISOLATION
+     * @param work determines the work of the transaction
+     * @return the result of the work
+     * @throws SQLException if the work failed or the transaction can't be committed,
+     *                      the last error if all retries failed
+     */
+    public static <R> R inTransaction(boolean readOnly, int isolation, TransactionWork<R> work)
+            throws SQLException {
+        if (running.get() != null || ConnectionManager.isInTransaction()) {
+            return work.run();
+        }
+        running.set(Boolean.TRUE);
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    return readOnly ? runReadOnly(isolation, work) : runReadWrite(isolation, work);
+                } catch (SQLException e) {
+                    if (attempt >= MAX_RETRIES || !isTransient(e)) {
+                        throw e;
+                    }
+                    pause(attempt, e);
+                }
+            }
+        } finally {
+            running.remove();
+        }
+    }
+
+    /**
+     * @param e determines the error of a transaction
+     * @return true if the transaction was rolled back by a deadlock or failed on
+     *         a lock wait timeout and can be tried again
+     */
+    public static boolean isTransient(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransactionRollbackException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                SQLException sqlException = (SQLException) cause;
+                if (sqlException.getErrorCode() == ER_LOCK_DEADLOCK
+                        || sqlException.getErrorCode() == ER_LOCK_WAIT_TIMEOUT
+                        || SERIALIZATION_FAILURE.equals(sqlException.getSQLState())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static <R> R runReadWrite(int isolation, TransactionWork<R> work) throws SQLException {
+        return run(false, isolation, work);
+    }
+
+    private static <R> R runReadOnly(int isolation, TransactionWork<R> work) throws SQLException {
+        try (ReadOnlyScope readOnly = ConnectionManager.openReadOnlyScope()) {
+            return run(true, isolation, work);
+        }
+    }
+
+    // the transaction starts on the first connection the work gets, work that doesn't reach
+    // the database (the DAOs of the memory profile) takes no connection
+    private static <R> R run(boolean readOnly, int isolation, TransactionWork<R> work) throws SQLException {
+        ConnectionManager.beginTransaction(readOnly, isolation);
+        try {
+            R result = work.run();
+            ConnectionManager.commit();
+            return result;
+        } finally {
+            ConnectionManager.endTransaction();
+        }
+    }
+
+    // random pause of up to tx.retryBackoffMillis * 2^attempt ms, so the retries of
+    // the deadlocked transactions don't collide again
+    private static void pause(int attempt, SQLException e) throws SQLException {
+        long pause = ThreadLocalRandom.current().nextLong((RETRY_BACKOFF_MILLIS << attempt) + 1);
+        log.warn(String.format("Transaction failed, retry %d of %d in %d ms: %s",
+                attempt + 1, MAX_RETRIES, pause, e.getMessage()));
+        try {
+            Thread.sleep(pause);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package db;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface TransactionWork<R> {
+    /**
+     * The work of a transaction, it may be run more than once if the transaction is retried
+     *
+     * @return the result of the work
+     * @throws SQLException if there is an error in the database
+     */
+    R run() throws SQLException;
+}
@@ -0,0 +1,66 @@
+package db.migration;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * One migration script "V<version>__<description>.sql": SQL statements separated by ";",
+ * lines starting with "--" are comments. ";" inside string literals is not supported.
+ */
+@Getter
+@ToString(exclude = "statements")
+class Migration {
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private final int version;
+    private final String description;
+    private final long checksum;
+    private final List<String> statements;
+
+    private Migration(int version, String description, long checksum, List<String> statements) {
+        this.version = version;
+        this.description = description;
+        this.checksum = checksum;
+        this.statements = statements;
+    }
+
+    /**
+     * @param fileName determines the name of the script file
+     * @param script determines the content of the script
+     * @return the parsed migration
+     * @throws IllegalArgumentException if the file name doesn't match "V<version>__<description>.sql"
+     */
+    static Migration parse(String fileName, String script) {
+        Matcher matcher = FILE_NAME.matcher(fileName);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid migration file name: " + fileName);
+        }
+        // the same checksum for a script checked out with Windows line ends
+        String normalized = script.replace("\r\n", "\n");
+        CRC32 crc = new CRC32();
+        crc.update(normalized.getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder sql = new StringBuilder();
+        for (String line : normalized.split("\n")) {
+            if (!line.trim().startsWith("--")) {
+                sql.append(line).append('\n');
+            }
+        }
+        List<String> statements = new ArrayList<>();
+        for (String statement : sql.toString().split(";")) {
+            if (!statement.trim().isEmpty()) {
+                statements.add(statement.trim());
+            }
+        }
+
+        return new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '),
+                crc.getValue(), statements);
+    }
+}
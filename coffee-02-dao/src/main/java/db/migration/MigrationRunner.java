@@ -0,0 +1,186 @@
+package db.migration;
+
+import db.DataSource;
+import db.DbProperties;
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the schema migrations listed in migrations.txt of the migration location
+ * to the primary database, every migration once and in the order of the list.
+ * <p>
+ * Applied migrations are recorded in the history table with the checksum of the script,
+ * a changed script of an applied migration stops the start. Instances starting at the
+ * same time wait for each other on a MySQL named lock. MySQL commits DDL at once, so a
+ * failed migration is not recorded and has to be cleaned up by hand before the next start.
+ */
+public class MigrationRunner {
+    private static Logger log = Logger.getLogger(MigrationRunner.class);
+    private static final String INDEX_FILE = "migrations.txt";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private final String location;
+    private final String historyTable;
+
+    /**
+     * runner of the migrations in db/migration with SchemaMigration history table
+     */
+    public MigrationRunner() {
+        this("db/migration/", "SchemaMigration");
+    }
+
+    /**
+     * @param location determines the classpath directory of migrations.txt and the scripts
+     * @param historyTable determines the table of the applied migrations
+     */
+    public MigrationRunner(String location, String historyTable) {
+        this.location = location;
+        this.historyTable = historyTable;
+    }
+
+    /**
+     * Applies the migrations not applied yet, does nothing if migration.enabled=false
+     *
+     * @return the number of applied migrations
+     * @throws Exception if the scripts can't be read, a migration can't be applied
+     *                   or an applied one was changed
+     */
+    public int migrate() throws Exception {
+        if (!DbProperties.getBoolean("migration.enabled", true)) {
+            return 0;
+        }
+        List<Migration> migrations = load();
+        try (Connection connection = DataSource.getInstance().getConnection()) {
+            lock(connection);
+            try {
+                return migrate(connection, migrations);
+            } finally {
+                unlock(connection);
+            }
+        }
+    }
+
+    private int migrate(Connection connection, List<Migration> migrations) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + historyTable + " ("
+                    + "version int not null, description varchar(200) not null, checksum bigint not null, "
+                    + "installed_on datetime not null, execution_millis int not null, "
+                    + "primary key (version)) engine=InnoDB");
+        }
+
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version, checksum FROM " + historyTable)) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+
+        int count = 0;
+        for (Migration migration : migrations) {
+            Long checksum = applied.remove(migration.getVersion());
+            if (checksum == null) {
+                apply(connection, migration);
+                count++;
+            } else if (checksum != migration.getChecksum()) {
+                throw new SQLException(String.format("Applied migration V%d %s was changed: checksum %d, was %d",
+                        migration.getVersion(), migration.getDescription(), migration.getChecksum(), checksum));
+            }
+        }
+        if (!applied.isEmpty()) {
+            log.warn("Database has migrations unknown to this version: " + applied.keySet());
+        }
+        log.info(String.format("Schema migrations: %d applied, %d total", count, migrations.size()));
+        return count;
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        log.info(String.format("Applying migration V%d %s", migration.getVersion(), migration.getDescription()));
+        long start = System.currentTimeMillis();
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : migration.getStatements()) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            log.error(String.format("Migration V%d %s failed: %s", migration.getVersion(),
+                    migration.getDescription(), e.getMessage()));
+            throw e;
+        }
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO " + historyTable
+                + " (version, description, checksum, installed_on, execution_millis) VALUES (?,?,?,?,?)")) {
+            ps.setInt(1, migration.getVersion());
+            ps.setString(2, migration.getDescription());
+            ps.setLong(3, migration.getChecksum());
+            ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+            ps.setInt(5, (int) (System.currentTimeMillis() - start));
+            ps.executeUpdate();
+        }
+    }
+
+    private List<Migration> load() throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        int lastVersion = 0;
+        for (String line : read(location + INDEX_FILE).split("\n")) {
+            String fileName = line.trim();
+            if (fileName.isEmpty() || fileName.startsWith("#")) {
+                continue;
+            }
+            Migration migration = Migration.parse(fileName, read(location + fileName));
+            if (migration.getVersion() <= lastVersion) {
+                throw new IOException("Migrations are out of order: " + fileName);
+            }
+            lastVersion = migration.getVersion();
+            migrations.add(migration);
+        }
+        return migrations;
+    }
+
+    private static String read(String resource) throws IOException {
+        try (InputStream in = MigrationRunner.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("There is no migration resource: " + resource);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void lock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, historyTable);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Can't get migration lock " + historyTable);
+                }
+            }
+        }
+    }
+
+    private void unlock(Connection connection) {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, historyTable);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            log.error("Can't release migration lock " + historyTable + ": " + e.getMessage());
+        }
+    }
+}
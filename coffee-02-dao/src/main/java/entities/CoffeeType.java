@@ -11,4 +11,6 @@ public class CoffeeType {
     private String typeName;
     private double price;
     private DisabledFlag disabled;
+    // incremented by every update, see OptimisticLockException
+    private int version;
 }
@@ -8,4 +8,6 @@ import lombok.NoArgsConstructor;
 public class Configuration {
     private String id;
     private String value;
+    // incremented by every update, see OptimisticLockException
+    private int version;
 }
@@ -0,0 +1,6 @@
+--
+-- CT_I и CO_I1 повторяют первичный ключ: только замедляют вставку и занимают buffer pool
+--
+drop index CT_I on CoffeeType;
+
+drop index CO_I1 on CoffeeOrder;
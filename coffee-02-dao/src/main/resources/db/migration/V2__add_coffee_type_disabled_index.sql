@@ -0,0 +1,6 @@
+--
+-- список доступных сортов выбирается по disabled (CoffeeTypeDao.getAllForDisabledFlag)
+--
+create index CT_I2 on CoffeeType (
+  disabled asc
+);
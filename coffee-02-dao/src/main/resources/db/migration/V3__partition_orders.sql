@@ -0,0 +1,24 @@
+--
+-- CoffeeOrder разбивается на секции по диапазонам id, CoffeeOrderItem - на секции с теми же
+-- диапазонами order_id (id заказов выдаются по возрастанию, см. IdAllocator): поиск, изменение
+-- и удаление заказа по id читают одну секцию. Сначала есть только секция p_future,
+-- следующие секции заранее создаёт db.PartitionMaintenance.
+--
+-- Секционированные таблицы не поддерживают внешние ключи, а каждый уникальный ключ
+-- должен включать столбец секционирования: COI_CO и COI_CT удаляются, первичный ключ
+-- CoffeeOrderItem расширяется. Позиции удаляются вместе с заказом в сервисе, CoffeeType
+-- не удаляется, пока на него ссылаются позиции (см. CoffeeTypeDaoImpl.delete).
+--
+alter table CoffeeOrderItem drop foreign key COI_CO;
+
+alter table CoffeeOrderItem drop foreign key COI_CT;
+
+alter table CoffeeOrder partition by range (id) (
+  partition p_future values less than (maxvalue)
+);
+
+alter table CoffeeOrderItem drop primary key, add primary key (id, order_id);
+
+alter table CoffeeOrderItem partition by range (order_id) (
+  partition p_future values less than (maxvalue)
+);
@@ -0,0 +1,17 @@
+--
+-- последовательности id для IdAllocator, выдаются блоками (hi/lo).
+-- Продолжают id уже сохранённых заказов и позиций: первый ещё не выданный id - max(id) + 1
+--
+create table if not exists IdSequence (
+  name 		varchar(50) not null, -- pk, название таблицы
+  next_id 	int not null, -- первый ещё не выданный id
+  primary key (name)
+) engine=InnoDB;
+
+insert into IdSequence (name, next_id)
+  select 'CoffeeOrder', greatest(coalesce(max(id), 0) + 1, 1) from CoffeeOrder
+  on duplicate key update next_id = greatest(IdSequence.next_id, values(next_id));
+
+insert into IdSequence (name, next_id)
+  select 'CoffeeOrderItem', greatest(coalesce(max(id), 0) + 1, 1) from CoffeeOrderItem
+  on duplicate key update next_id = greatest(IdSequence.next_id, values(next_id));
@@ -0,0 +1,7 @@
+--
+-- история заказов листается по (order_date, id): InnoDB добавляет id в конец вторичного индекса
+-- (CoffeeOrderDao.getHistoryPage)
+--
+create index CO_I2 on CoffeeOrder (
+  order_date asc
+);
@@ -0,0 +1,7 @@
+--
+-- номер версии для оптимистической блокировки: UPDATE ... WHERE id = ? AND version = ?
+-- (CoffeeTypeDaoImpl.update, ConfigurationDaoImpl.update)
+--
+alter table CoffeeType add column version int not null default 0;
+
+alter table Configuration add column version int not null default 0;
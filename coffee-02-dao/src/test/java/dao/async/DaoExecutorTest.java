@@ -0,0 +1,83 @@
+package dao.async;
+
+import dao.CoffeeTypeDao;
+import db.ConnectionManager;
+import db.ConnectionScope;
+import db.DataSource;
+import db.ReadOnlyScope;
+import entities.CoffeeType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+@ContextConfiguration("/testContext-dao.xml")
+@RunWith(SpringJUnit4ClassRunner.class)
+public class DaoExecutorTest extends Assert {
+    @Autowired
+    private CoffeeTypeDao coffeeTypeDao;
+
+    @Test
+    public void callRunsOnExecutorThread() throws Exception {
+        Thread caller = Thread.currentThread();
+        CompletableFuture<Thread> worker = DaoExecutor.getInstance().submit(Thread::currentThread);
+        assertNotSame(caller, worker.get());
+
+        List<CoffeeType> sync = coffeeTypeDao.getAll();
+        List<CoffeeType> async = AsyncDao.of(coffeeTypeDao).call(CoffeeTypeDao::getAll).get();
+        assertEquals(sync, async);
+    }
+
+    @Test
+    public void readOnlyRoutingCarried() throws Exception {
+        // other tests may leave a transaction on the connection of this thread
+        ConnectionManager.releaseConnection();
+
+        try (ConnectionScope scope = ConnectionManager.openScope();
+             ReadOnlyScope readOnly = ConnectionManager.openReadOnlyScope()) {
+            Connection callerReplica = ConnectionManager.getConnection();
+            long replicaAcquires = DataSource.getReplicaInstance().getPoolMetrics().getAcquireCount();
+            Connection workerConnection = DaoExecutor.getInstance().submit(ConnectionManager::getConnection).get();
+
+            // the worker has a replica connection of its own, released when the call is done
+            assertNotSame(callerReplica, workerConnection);
+            assertTrue(workerConnection.isClosed());
+            assertEquals(1, DataSource.getReplicaInstance().getPoolMetrics().getAcquireCount() - replicaAcquires);
+        }
+    }
+
+    @Test
+    public void callInTransactionRunsInline() throws Exception {
+        Connection con = ConnectionManager.getConnection();
+        con.setAutoCommit(false);
+        try {
+            CompletableFuture<Connection> worker = DaoExecutor.getInstance().submit(ConnectionManager::getConnection);
+            assertTrue(worker.isDone());
+            assertSame(con, worker.get());
+        } finally {
+            con.rollback();
+            con.setAutoCommit(true);
+        }
+    }
+
+    @Test
+    public void errorCompletesFuture() throws InterruptedException {
+        CompletableFuture<Object> future = DaoExecutor.getInstance().submit(() -> {
+            throw new SQLException("test error");
+        });
+        try {
+            future.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package dao.impl;
+
+import db.ConnectionManager;
+import db.ConnectionScope;
+import db.DataSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+
+public class AbstractDaoTest extends Assert {
+    private static final String QUERY_SQL = "SELECT * FROM CoffeeType WHERE id=?";
+
+    private final AbstractDao dao = new AbstractDao() {};
+
+    @Test
+    public void statementCachedByPool() throws Exception {
+        try (ConnectionScope scope = ConnectionManager.openScope()) {
+            PreparedStatement first = dao.prepareStatement(QUERY_SQL);
+            PreparedStatement driverStatement = first.unwrap(PreparedStatement.class);
+            first.close();
+            int cachedStatements = DataSource.getInstance().getPoolMetrics().getCachedStatements();
+            assertTrue(cachedStatements > 0);
+
+            // the same SQL on the same connection gets the same driver statement from the cache
+            long hits = AbstractDao.getStatementCacheHits();
+            long misses = AbstractDao.getStatementCacheMisses();
+            PreparedStatement second = dao.prepareStatement(QUERY_SQL);
+            assertSame(driverStatement, second.unwrap(PreparedStatement.class));
+            second.close();
+            assertEquals(1, AbstractDao.getStatementCacheHits() - hits);
+            assertEquals(misses, AbstractDao.getStatementCacheMisses());
+            assertEquals(cachedStatements, DataSource.getInstance().getPoolMetrics().getCachedStatements());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package dao.impl;
 
 import dao.CoffeeOrderDao;
+import dao.IdAllocator;
 import db.ConnectionManager;
 import entities.CoffeeOrder;
 import org.junit.Assert;
@@ -13,7 +14,12 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import java.sql.Connection;
 
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @ContextConfiguration("/testContext-dao.xml")
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -21,6 +27,8 @@ public class CoffeeOrderDaoImplTest extends Assert {
 
     @Autowired
     private CoffeeOrderDao coffeeOrderDao;
+    @Autowired
+    private IdAllocator idAllocator;
 
     @Test
     public void crud()  throws SQLException {
@@ -84,4 +92,104 @@ public class CoffeeOrderDaoImplTest extends Assert {
             con.rollback();
         }
     }
+
+    @Test
+    public void saveAllWithAssignedIds() throws SQLException {
+        Connection con = ConnectionManager.getConnection();
+        con.setAutoCommit(false);
+
+        CoffeeOrder first = new CoffeeOrder();
+        first.setId(idAllocator.nextId(IdAllocator.COFFEE_ORDER));
+        first.setOrderDate(new java.sql.Timestamp(new Date().getTime()));
+        first.setCustomerName("Ivanov Ivan");
+        first.setDeliveryAddress("Sunny street, 12");
+        first.setCost(12.0);
+        CoffeeOrder second = new CoffeeOrder();
+        second.setId(idAllocator.nextId(IdAllocator.COFFEE_ORDER));
+        second.setOrderDate(first.getOrderDate());
+        second.setDeliveryAddress("Wide street, 10");
+        second.setCost(10.0);
+
+        try {
+            coffeeOrderDao.saveAll(Arrays.asList(first, second));
+
+            assertEquals(first.getDeliveryAddress(), coffeeOrderDao.get(first.getId()).getDeliveryAddress());
+            assertEquals(second.getDeliveryAddress(), coffeeOrderDao.get(second.getId()).getDeliveryAddress());
+        } finally {
+            con.rollback();
+        }
+    }
+
+    @Test
+    public void streamAll() throws SQLException {
+        Connection con = ConnectionManager.getConnection();
+        con.setAutoCommit(false);
+
+        CoffeeOrder first = new CoffeeOrder();
+        first.setOrderDate(new java.sql.Timestamp(new Date().getTime()));
+        first.setCustomerName("Ivanov Ivan");
+        first.setDeliveryAddress("Sunny street, 12");
+        first.setCost(12.0);
+        CoffeeOrder second = new CoffeeOrder();
+        second.setOrderDate(first.getOrderDate());
+        second.setCustomerName("Pavlov Pavel");
+        second.setDeliveryAddress("Wide street, 10");
+        second.setCost(10.0);
+
+        try {
+            coffeeOrderDao.save(first);
+            coffeeOrderDao.save(second);
+
+            List<Integer> ids;
+            try (Stream<CoffeeOrder> orders = coffeeOrderDao.streamAll()) {
+                ids = orders.map(CoffeeOrder::getId).collect(Collectors.toList());
+            }
+            assertTrue(ids.contains(first.getId()));
+            assertTrue(ids.contains(second.getId()));
+            assertTrue(ids.indexOf(first.getId()) < ids.indexOf(second.getId()));
+
+            // the connection is free again after the stream is closed
+            assertNotNull(coffeeOrderDao.get(first.getId()));
+        } finally {
+            con.rollback();
+        }
+    }
+
+    @Test
+    public void getPageBefore() throws SQLException {
+        Connection con = ConnectionManager.getConnection();
+        con.setAutoCommit(false);
+
+        // dates in the future make the saved orders the newest ones
+        Timestamp earlier = Timestamp.valueOf("2100-01-01 10:00:00");
+        Timestamp later = Timestamp.valueOf("2100-01-02 10:00:00");
+        try {
+            CoffeeOrder first = saveOrder(earlier);
+            CoffeeOrder second = saveOrder(earlier);
+            CoffeeOrder third = saveOrder(later);
+
+            // the newest first, orders with the same date by id
+            List<CoffeeOrder> page = coffeeOrderDao.getPageBefore(null, 0, 2);
+            assertEquals(2, page.size());
+            assertEquals(third.getId(), page.get(0).getId());
+            assertEquals(second.getId(), page.get(1).getId());
+
+            // the next page starts right after the last order of the page
+            CoffeeOrder last = page.get(1);
+            page = coffeeOrderDao.getPageBefore(last.getOrderDate(), last.getId(), 2);
+            assertFalse(page.isEmpty());
+            assertEquals(first.getId(), page.get(0).getId());
+        } finally {
+            con.rollback();
+        }
+    }
+
+    private CoffeeOrder saveOrder(Timestamp orderDate) throws SQLException {
+        CoffeeOrder coffeeOrder = new CoffeeOrder();
+        coffeeOrder.setOrderDate(orderDate);
+        coffeeOrder.setCustomerName("Ivanov Ivan");
+        coffeeOrder.setDeliveryAddress("Sunny street, 12");
+        coffeeOrder.setCost(12.0);
+        return coffeeOrderDao.save(coffeeOrder);
+    }
 }
@@ -17,8 +17,10 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 @ContextConfiguration("/testContext-dao.xml")
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -163,4 +165,147 @@ public class CoffeeOrderItemDaoImplTest extends Assert {
             con.rollback();
         }
     }
+
+    @Test
+    public void saveAll() throws SQLException {
+        Connection con = ConnectionManager.getConnection();
+        con.setAutoCommit(false);
+
+        CoffeeType coffeeTypeForSave = new CoffeeType();
+        coffeeTypeForSave.setTypeName("Very fragrant coffee");
+        coffeeTypeForSave.setPrice(1.0);
+        coffeeTypeForSave.setDisabled(DisabledFlag.Y);
+
+        CoffeeOrder coffeeOrderForSave = new CoffeeOrder();
+        coffeeOrderForSave.setOrderDate(new java.sql.Timestamp(new Date().getTime()));
+        coffeeOrderForSave.setCustomerName("Ivanov Ivan");
+        coffeeOrderForSave.setDeliveryAddress("Sunny street, 12");
+        coffeeOrderForSave.setCost(12.0);
+
+        try {
+            // check null & empty list
+            assertTrue(coffeeOrderItemDao.saveAll(null).isEmpty());
+            assertTrue(coffeeOrderItemDao.saveAll(new ArrayList<>()).isEmpty());
+
+            coffeeTypeForSave = coffeeTypeDao.save(coffeeTypeForSave);
+            coffeeOrderForSave = coffeeOrderDao.save(coffeeOrderForSave);
+
+            List<CoffeeOrderItem> itemsForSave = new ArrayList<>();
+            for (int quantity = 1; quantity <= 3; quantity++) {
+                CoffeeOrderItem item = new CoffeeOrderItem();
+                item.setCoffeeTypeId(coffeeTypeForSave.getId());
+                item.setOrderId(coffeeOrderForSave.getId());
+                item.setQuantity(quantity);
+                itemsForSave.add(item);
+            }
+
+            // check all items saved with their generated ids
+            List<CoffeeOrderItem> saved = coffeeOrderItemDao.saveAll(itemsForSave);
+            assertEquals(3, saved.size());
+            for (CoffeeOrderItem item : saved) {
+                assertNotEquals(0, item.getId());
+                assertEquals(item, coffeeOrderItemDao.get(item.getId()));
+            }
+            assertEquals(3, coffeeOrderItemDao.getAllForOrderId(coffeeOrderForSave.getId()).size());
+        } finally {
+            con.rollback();
+        }
+    }
+
+    @Test
+    public void deleteAllForOrderIds() throws SQLException {
+        Connection con = ConnectionManager.getConnection();
+        con.setAutoCommit(false);
+
+        CoffeeType coffeeTypeForSave = new CoffeeType();
+        coffeeTypeForSave.setTypeName("Very fragrant coffee");
+        coffeeTypeForSave.setPrice(1.0);
+        coffeeTypeForSave.setDisabled(DisabledFlag.Y);
+
+        try {
+            coffeeTypeForSave = coffeeTypeDao.save(coffeeTypeForSave);
+
+            // save 3 CoffeeOrders with 2 CoffeeOrderItems each
+            List<Integer> orderIds = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                CoffeeOrder coffeeOrder = new CoffeeOrder();
+                coffeeOrder.setOrderDate(new java.sql.Timestamp(new Date().getTime()));
+                coffeeOrder.setCustomerName("Ivanov Ivan");
+                coffeeOrder.setDeliveryAddress("Sunny street, 12");
+                coffeeOrder.setCost(12.0);
+                coffeeOrder = coffeeOrderDao.save(coffeeOrder);
+                orderIds.add(coffeeOrder.getId());
+
+                List<CoffeeOrderItem> items = new ArrayList<>();
+                for (int quantity = 1; quantity <= 2; quantity++) {
+                    CoffeeOrderItem item = new CoffeeOrderItem();
+                    item.setCoffeeTypeId(coffeeTypeForSave.getId());
+                    item.setOrderId(coffeeOrder.getId());
+                    item.setQuantity(quantity);
+                    items.add(item);
+                }
+                coffeeOrderItemDao.saveAll(items);
+            }
+
+            // check null & empty ids
+            assertEquals(0, coffeeOrderItemDao.deleteAllForOrderIds(null));
+            assertEquals(0, coffeeOrderItemDao.deleteAllForOrderIds(new ArrayList<>()));
+
+            // delete items of one order
+            assertEquals(2, coffeeOrderItemDao.deleteAllForOrderId(orderIds.get(0)));
+            assertTrue(coffeeOrderItemDao.getAllForOrderId(orderIds.get(0)).isEmpty());
+
+            // delete items & orders of the others
+            List<Integer> otherIds = orderIds.subList(1, orderIds.size());
+            assertEquals(4, coffeeOrderItemDao.deleteAllForOrderIds(otherIds));
+            for (int orderId : otherIds) {
+                assertTrue(coffeeOrderItemDao.getAllForOrderId(orderId).isEmpty());
+            }
+            assertEquals(3, coffeeOrderDao.deleteAll(orderIds));
+            for (int orderId : orderIds) {
+                assertNull(coffeeOrderDao.get(orderId));
+            }
+        } finally {
+            con.rollback();
+        }
+    }
+
+    @Test
+    public void streamAll() throws SQLException {
+        Connection con = ConnectionManager.getConnection();
+        con.setAutoCommit(false);
+
+        CoffeeType coffeeTypeForSave = new CoffeeType();
+        coffeeTypeForSave.setTypeName("Very fragrant coffee");
+        coffeeTypeForSave.setPrice(1.0);
+        coffeeTypeForSave.setDisabled(DisabledFlag.Y);
+
+        CoffeeOrder coffeeOrderForSave = new CoffeeOrder();
+        coffeeOrderForSave.setOrderDate(new java.sql.Timestamp(new Date().getTime()));
+        coffeeOrderForSave.setCustomerName("Ivanov Ivan");
+        coffeeOrderForSave.setDeliveryAddress("Sunny street, 12");
+        coffeeOrderForSave.setCost(12.0);
+
+        try {
+            coffeeTypeForSave = coffeeTypeDao.save(coffeeTypeForSave);
+            coffeeOrderForSave = coffeeOrderDao.save(coffeeOrderForSave);
+
+            List<CoffeeOrderItem> itemsForSave = new ArrayList<>();
+            for (int quantity = 1; quantity <= 3; quantity++) {
+                CoffeeOrderItem item = new CoffeeOrderItem();
+                item.setCoffeeTypeId(coffeeTypeForSave.getId());
+                item.setOrderId(coffeeOrderForSave.getId());
+                item.setQuantity(quantity);
+                itemsForSave.add(item);
+            }
+            coffeeOrderItemDao.saveAll(itemsForSave);
+
+            int orderId = coffeeOrderForSave.getId();
+            try (Stream<CoffeeOrderItem> items = coffeeOrderItemDao.streamAll()) {
+                assertEquals(3, items.filter(item -> item.getOrderId() == orderId).count());
+            }
+        } finally {
+            con.rollback();
+        }
+    }
 }
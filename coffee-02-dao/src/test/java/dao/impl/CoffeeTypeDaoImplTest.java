@@ -1,6 +1,7 @@
 package dao.impl;
 
 import dao.CoffeeTypeDao;
+import dao.OptimisticLockException;
 import db.ConnectionManager;
 import entities.CoffeeType;
 import entities.enums.DisabledFlag;
@@ -13,7 +14,9 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @ContextConfiguration("/testContext-dao.xml")
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -75,6 +78,40 @@ public class CoffeeTypeDaoImplTest extends Assert {
         }
     }
 
+    @Test
+    public void staleUpdate() throws SQLException {
+        Connection con = ConnectionManager.getConnection();
+        con.setAutoCommit(false);
+
+        CoffeeType newOneForSave = new CoffeeType();
+        newOneForSave.setTypeName("Very fragrant coffee");
+        newOneForSave.setPrice(1.0);
+        newOneForSave.setDisabled(DisabledFlag.Y);
+        try {
+            CoffeeType saved = coffeeTypeDao.save(newOneForSave);
+            CoffeeType first = coffeeTypeDao.get(saved.getId());
+            CoffeeType second = coffeeTypeDao.get(saved.getId());
+
+            // first update wins and increments version
+            first.setPrice(2.0);
+            coffeeTypeDao.update(first);
+            assertEquals(1, first.getVersion());
+            assertEquals(first, coffeeTypeDao.get(saved.getId()));
+
+            // second was read before the first update
+            second.setPrice(3.0);
+            try {
+                coffeeTypeDao.update(second);
+                fail();
+            } catch (OptimisticLockException e) {
+                assertEquals(0, second.getVersion());
+            }
+            assertEquals(2.0, coffeeTypeDao.get(saved.getId()).getPrice(), 0.0);
+        } finally {
+            con.rollback();
+        }
+    }
+
     @Test
     public void getAll() throws SQLException {
         Connection con = ConnectionManager.getConnection();
@@ -131,4 +168,36 @@ public class CoffeeTypeDaoImplTest extends Assert {
             con.rollback();
         }
     }
+
+    @Test
+    public void getAllByIds() throws SQLException {
+        Connection con = ConnectionManager.getConnection();
+        con.setAutoCommit(false);
+
+        try {
+            // check null & empty ids
+            assertTrue(coffeeTypeDao.getAllByIds(null).isEmpty());
+            assertTrue(coffeeTypeDao.getAllByIds(new ArrayList<>()).isEmpty());
+
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 1; i <= 3; i++) {
+                CoffeeType newOneForSave = new CoffeeType();
+                newOneForSave.setTypeName("Very fragrant coffee " + i);
+                newOneForSave.setPrice(i);
+                newOneForSave.setDisabled(DisabledFlag.N);
+                ids.add(coffeeTypeDao.save(newOneForSave).getId());
+            }
+            // duplicate & unknown ids
+            ids.add(ids.get(0));
+            ids.add(-1);
+
+            Map<Integer, CoffeeType> map = coffeeTypeDao.getAllByIds(ids);
+            assertEquals(3, map.size());
+            for (int id : ids.subList(0, 3)) {
+                assertEquals(coffeeTypeDao.get(id), map.get(id));
+            }
+        } finally {
+            con.rollback();
+        }
+    }
 }
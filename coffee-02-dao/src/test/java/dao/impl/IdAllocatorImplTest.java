@@ -0,0 +1,40 @@
+package dao.impl;
+
+import dao.IdAllocator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+
+public class IdAllocatorImplTest extends Assert {
+    private final IdAllocator idAllocator = new IdAllocatorImpl();
+
+    @Test
+    public void idsUniqueAcrossBlocks() throws SQLException {
+        Set<Integer> ids = new HashSet<>();
+        int previous = 0;
+        // more than one block of the default size
+        for (int i = 0; i < 250; i++) {
+            int id = idAllocator.nextId(IdAllocator.COFFEE_ORDER_ITEM);
+            assertTrue(id > previous);
+            assertTrue(ids.add(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    public void blocksNotShared() throws SQLException {
+        IdAllocator other = new IdAllocatorImpl();
+        int first = idAllocator.nextId(IdAllocator.COFFEE_ORDER);
+        int second = other.nextId(IdAllocator.COFFEE_ORDER);
+
+        assertNotEquals(first, second);
+    }
+
+    @Test(expected = SQLException.class)
+    public void unknownSequence() throws SQLException {
+        idAllocator.nextId("NoSuchSequence");
+    }
+}
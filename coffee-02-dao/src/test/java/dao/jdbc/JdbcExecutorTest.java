@@ -0,0 +1,171 @@
+package dao.jdbc;
+
+import db.ConnectionManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class JdbcExecutorTest extends Assert {
+    private static final SqlStatement COUNT_SQL =
+            SqlStatement.of("COUNT_SQL", "SELECT COUNT(*) FROM CoffeeType");
+    private static final SqlStatement IDS_SQL =
+            SqlStatement.of("IDS_SQL", "SELECT id FROM CoffeeType ORDER BY id");
+    private static final SqlStatement TYPE_SQL =
+            SqlStatement.of("TYPE_SQL", "SELECT * FROM CoffeeType WHERE id=?");
+    private static final SqlStatement WRONG_SQL =
+            SqlStatement.of("WRONG_SQL", "SELECT * FROM NoSuchTable");
+    private static final SqlStatement WRONG_TYPE_SQL =
+            SqlStatement.of("WRONG_TYPE_SQL", "SELECT * FROM CoffeeType WHERE no_such_column=?");
+    private static final SqlStatement WRONG_UPDATE_SQL =
+            SqlStatement.of("WRONG_UPDATE_SQL", "DELETE FROM NoSuchTable");
+
+    private final JdbcExecutor executor = new JdbcExecutor((sql, autoGeneratedKeys) ->
+            ConnectionManager.getConnection().prepareStatement(sql.getSql(), autoGeneratedKeys));
+
+    @Test
+    public void listenerNotified() throws SQLException {
+        List<String> executed = new ArrayList<>();
+        ExecutionListener listener = (sql, elapsedNanos, rows, error) ->
+                executed.add(sql.getName() + ":" + rows + ":" + (error != null));
+        JdbcExecutor.addListener(listener);
+        try {
+            Integer count = executor.queryForObject(COUNT_SQL, ParameterBinder.NONE, rs -> rs.getInt(1));
+            assertNotNull(count);
+            try {
+                executor.queryForList(WRONG_SQL, ParameterBinder.NONE, rs -> rs.getInt(1));
+                fail();
+            } catch (SQLException e) {
+                // expected
+            }
+        } finally {
+            JdbcExecutor.removeListener(listener);
+        }
+
+        assertEquals(2, executed.size());
+        assertEquals("COUNT_SQL:1:false", executed.get(0));
+        assertEquals("WRONG_SQL:0:true", executed.get(1));
+    }
+
+    @Test
+    public void errorKeepsCause() {
+        try {
+            executor.update(WRONG_UPDATE_SQL, ParameterBinder.NONE);
+            fail();
+        } catch (SQLException e) {
+            assertNotNull(e.getCause());
+            assertEquals(((SQLException) e.getCause()).getSQLState(), e.getSQLState());
+            assertEquals(((SQLException) e.getCause()).getErrorCode(), e.getErrorCode());
+            assertTrue(e.getMessage().contains("WRONG_UPDATE_SQL"));
+        }
+    }
+
+    @Test
+    public void streamMatchesList() throws SQLException {
+        List<Integer> list = executor.queryForList(IDS_SQL, ParameterBinder.NONE, rs -> rs.getInt(1));
+        List<Integer> streamed;
+        try (Stream<Integer> stream = executor.queryForStream(IDS_SQL, ParameterBinder.NONE,
+                rs -> rs.getInt(1), Integer.MIN_VALUE)) {
+            streamed = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(list, streamed);
+    }
+
+    @Test
+    public void metricsKeyedByName() throws SQLException {
+        StatementMetrics metrics = StatementMetrics.getInstance();
+        // registered by AbstractDao as well, it stays registered for the DAO tests
+        JdbcExecutor.addListener(metrics);
+        StatementStats before = metrics.get(IDS_SQL.getName());
+        long executions = before == null ? 0 : before.getExecutionCount();
+        long errors = before == null ? 0 : before.getErrorCount();
+        int rows = executor.queryForList(IDS_SQL, ParameterBinder.NONE, rs -> rs.getInt(1)).size();
+        try {
+            executor.queryForList(SqlStatement.of(IDS_SQL.getName(), WRONG_SQL.getSql()),
+                    ParameterBinder.NONE, rs -> rs.getInt(1));
+            fail();
+        } catch (SQLException e) {
+            // expected
+        }
+
+        StatementStats stats = metrics.snapshot().get(IDS_SQL.getName());
+        assertEquals(executions + 2, stats.getExecutionCount());
+        assertEquals(errors + 1, stats.getErrorCount());
+        assertTrue(stats.getRowCount() >= rows);
+        assertTrue(stats.getP50Millis() > 0);
+        assertTrue(stats.getP50Millis() <= stats.getP95Millis());
+        assertTrue(stats.getP95Millis() <= stats.getP99Millis());
+    }
+
+    @Test
+    public void slowQueryLogged() throws Exception {
+        SlowQueryLog defaultLog = JdbcExecutor.getSlowQueryLog();
+        SlowQueryLog slowQueryLog = new SlowQueryLog(0, 60_000, "dao.jdbc.") {
+            @Override
+            public boolean isSlow(long elapsedNanos) {
+                return true;
+            }
+        };
+        StringWriter written = new StringWriter();
+        WriterAppender appender = new WriterAppender(new PatternLayout("%m%n"), written);
+        Logger.getLogger(SlowQueryLog.class).addAppender(appender);
+        JdbcExecutor.setSlowQueryLog(slowQueryLog);
+        try {
+            executor.queryForObject(TYPE_SQL, ps -> ps.setInt(1, 12345), rs -> rs.getInt(1));
+            executor.queryForObject(TYPE_SQL, ps -> ps.setInt(1, 54321), rs -> rs.getInt(1));
+            slowQueryLog.awaitWritten();
+        } finally {
+            JdbcExecutor.setSlowQueryLog(defaultLog);
+            Logger.getLogger(SlowQueryLog.class).removeAppender(appender);
+        }
+
+        String logged = written.toString();
+        assertTrue(logged.contains("Slow SQL TYPE_SQL"));
+        assertTrue(logged.contains("caller=dao.jdbc.JdbcExecutorTest.slowQueryLogged"));
+        assertTrue(logged.contains("id=12345"));
+        assertTrue(logged.contains("id=54321"));
+        // EXPLAIN only for the first execution within the interval
+        assertEquals(logged.indexOf("select_type"), logged.lastIndexOf("select_type"));
+        assertTrue(logged.indexOf("select_type") > 0);
+    }
+
+    @Test
+    public void failedQueryLogged() throws Exception {
+        SlowQueryLog defaultLog = JdbcExecutor.getSlowQueryLog();
+        SlowQueryLog slowQueryLog = new SlowQueryLog(0, 60_000, "dao.jdbc.") {
+            @Override
+            public boolean isSlow(long elapsedNanos) {
+                return true;
+            }
+        };
+        StringWriter written = new StringWriter();
+        WriterAppender appender = new WriterAppender(new PatternLayout("%m%n"), written);
+        Logger.getLogger(SlowQueryLog.class).addAppender(appender);
+        JdbcExecutor.setSlowQueryLog(slowQueryLog);
+        try {
+            executor.queryForObject(WRONG_TYPE_SQL, ps -> ps.setInt(1, 777), rs -> rs.getInt(1));
+            fail();
+        } catch (SQLException e) {
+            slowQueryLog.awaitWritten();
+        } finally {
+            JdbcExecutor.setSlowQueryLog(defaultLog);
+            Logger.getLogger(SlowQueryLog.class).removeAppender(appender);
+        }
+
+        // the parameters of the failed statement are logged, EXPLAIN is tried as well
+        String logged = written.toString();
+        assertTrue(logged.contains("Slow SQL WRONG_TYPE_SQL"));
+        assertTrue(logged.contains("error="));
+        assertTrue(logged.contains("no_such_column=777"));
+        assertTrue(logged.contains("EXPLAIN failed"));
+    }
+}
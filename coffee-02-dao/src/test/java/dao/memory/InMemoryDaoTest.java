@@ -0,0 +1,115 @@
+package dao.memory;
+
+import dao.CoffeeOrderDao;
+import dao.CoffeeOrderItemDao;
+import dao.CoffeeTypeDao;
+import dao.ConfigurationDao;
+import entities.CoffeeOrder;
+import entities.CoffeeOrderItem;
+import entities.CoffeeType;
+import entities.enums.DisabledFlag;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@ContextConfiguration("/beans-dao.xml")
+@ActiveProfiles("memory")
+@RunWith(SpringJUnit4ClassRunner.class)
+public class InMemoryDaoTest extends Assert {
+    @Autowired
+    private CoffeeTypeDao coffeeTypeDao;
+    @Autowired
+    private CoffeeOrderDao coffeeOrderDao;
+    @Autowired
+    private CoffeeOrderItemDao coffeeOrderItemDao;
+    @Autowired
+    private ConfigurationDao configurationDao;
+
+    @Test
+    public void profileSelectsMemoryDaos() {
+        assertTrue(coffeeTypeDao instanceof InMemoryCoffeeTypeDao);
+        assertTrue(coffeeOrderDao instanceof InMemoryCoffeeOrderDao);
+        assertTrue(coffeeOrderItemDao instanceof InMemoryCoffeeOrderItemDao);
+        assertTrue(configurationDao instanceof InMemoryConfigurationDao);
+    }
+
+    @Test
+    public void coffeeTypeCrud() throws SQLException {
+        CoffeeType saved = coffeeTypeDao.save(coffeeType("Memory coffee"));
+        assertTrue(saved.getId() > 0);
+        assertEquals(saved, coffeeTypeDao.get(saved.getId()));
+
+        // stored copy is not changed through the saved entity
+        saved.setPrice(5.0);
+        assertEquals(1.0, coffeeTypeDao.get(saved.getId()).getPrice(), 0.0);
+        coffeeTypeDao.update(saved);
+        assertEquals(5.0, coffeeTypeDao.get(saved.getId()).getPrice(), 0.0);
+        assertTrue(coffeeTypeDao.getAllForDisabledFlag(DisabledFlag.N).contains(saved));
+
+        try {
+            coffeeTypeDao.save(coffeeType("Memory coffee"));
+            fail();
+        } catch (SQLException e) {
+            assertEquals("23000", e.getSQLState());
+        }
+
+        assertEquals(1, coffeeTypeDao.delete(saved.getId()));
+        assertNull(coffeeTypeDao.get(saved.getId()));
+    }
+
+    @Test
+    public void orderPagesAndItems() throws SQLException {
+        Timestamp date = new Timestamp(System.currentTimeMillis());
+        CoffeeOrder first = coffeeOrderDao.save(coffeeOrder(date));
+        CoffeeOrder second = coffeeOrderDao.save(coffeeOrder(date));
+        CoffeeOrder third = coffeeOrderDao.save(coffeeOrder(new Timestamp(date.getTime() - 1000)));
+
+        List<CoffeeOrder> page = coffeeOrderDao.getPageBefore(null, 0, 2);
+        assertEquals(Arrays.asList(second, first), page);
+        page = coffeeOrderDao.getPageBefore(first.getOrderDate(), first.getId(), 2);
+        assertEquals(Arrays.asList(third), page);
+
+        CoffeeOrderItem item = new CoffeeOrderItem();
+        item.setCoffeeTypeId(1);
+        item.setOrderId(first.getId());
+        item.setQuantity(2);
+        coffeeOrderItemDao.saveAll(Arrays.asList(item));
+        assertEquals(Arrays.asList(item), coffeeOrderItemDao.getAllForOrderId(first.getId()));
+
+        List<Integer> ids = coffeeOrderDao.streamAll().map(CoffeeOrder::getId).collect(Collectors.toList());
+        assertEquals(Arrays.asList(first.getId(), second.getId(), third.getId()), ids);
+
+        assertEquals(1, coffeeOrderItemDao.deleteAllForOrderIds(Arrays.asList(first.getId())));
+        assertEquals(3, coffeeOrderDao.deleteAll(ids));
+        assertTrue(coffeeOrderDao.getPageBefore(null, 0, 2).isEmpty());
+    }
+
+    private static CoffeeType coffeeType(String typeName) {
+        CoffeeType coffeeType = new CoffeeType();
+        coffeeType.setTypeName(typeName);
+        coffeeType.setPrice(1.0);
+        coffeeType.setDisabled(DisabledFlag.N);
+
+        return coffeeType;
+    }
+
+    private static CoffeeOrder coffeeOrder(Timestamp orderDate) {
+        CoffeeOrder coffeeOrder = new CoffeeOrder();
+        coffeeOrder.setOrderDate(orderDate);
+        coffeeOrder.setCustomerName("Memory customer");
+        coffeeOrder.setDeliveryAddress("Memory street");
+        coffeeOrder.setCost(1.0);
+
+        return coffeeOrder;
+    }
+}
@@ -0,0 +1,78 @@
+package db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class ConnectionManagerTest extends Assert {
+
+    @Test
+    public void scopeReleasesConnection() throws SQLException {
+        Connection connection;
+        try (ConnectionScope scope = ConnectionManager.openScope()) {
+            connection = ConnectionManager.getConnection();
+            try (ConnectionScope nested = ConnectionManager.openScope()) {
+                assertSame(connection, ConnectionManager.getConnection());
+            }
+            // nested scope keeps the connection of the outer one
+            assertFalse(connection.isClosed());
+            connection.setAutoCommit(false);
+        }
+        assertTrue(connection.isClosed());
+
+        try (ConnectionScope scope = ConnectionManager.openScope()) {
+            Connection next = ConnectionManager.getConnection();
+            assertNotSame(connection, next);
+            assertTrue(next.getAutoCommit());
+        }
+    }
+
+    @Test
+    public void readOnlyScopeUsesReplica() throws Exception {
+        try (ConnectionScope scope = ConnectionManager.openScope()) {
+            Connection primary = ConnectionManager.getConnection();
+            long replicaAcquires = DataSource.getReplicaInstance().getPoolMetrics().getAcquireCount();
+
+            try (ReadOnlyScope readOnly = ConnectionManager.openReadOnlyScope()) {
+                Connection replica = ConnectionManager.getConnection();
+                assertNotSame(primary, replica);
+                assertSame(replica, ConnectionManager.getConnection());
+            }
+            assertEquals(1, DataSource.getReplicaInstance().getPoolMetrics().getAcquireCount() - replicaAcquires);
+            // out of the read-only scope the primary connection is used again
+            assertSame(primary, ConnectionManager.getConnection());
+        }
+    }
+
+    @Test
+    public void readsStayOnPrimaryAfterWrite() throws SQLException {
+        try (ConnectionScope scope = ConnectionManager.openScope()) {
+            Connection primary = ConnectionManager.getConnection();
+            ConnectionManager.markWritten();
+            try (ReadOnlyScope readOnly = ConnectionManager.openReadOnlyScope()) {
+                assertSame(primary, ConnectionManager.getConnection());
+            }
+        }
+
+        // the next scope starts without the write mark
+        try (ConnectionScope scope = ConnectionManager.openScope()) {
+            Connection primary = ConnectionManager.getConnection();
+            try (ReadOnlyScope readOnly = ConnectionManager.openReadOnlyScope()) {
+                assertNotSame(primary, ConnectionManager.getConnection());
+            }
+        }
+    }
+
+    @Test
+    public void readsStayOnPrimaryInTransaction() throws SQLException {
+        try (ConnectionScope scope = ConnectionManager.openScope()) {
+            Connection primary = ConnectionManager.getConnection();
+            primary.setAutoCommit(false);
+            try (ReadOnlyScope readOnly = ConnectionManager.openReadOnlyScope()) {
+                assertSame(primary, ConnectionManager.getConnection());
+            }
+        }
+    }
+}
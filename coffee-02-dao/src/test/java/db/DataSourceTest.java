@@ -0,0 +1,78 @@
+package db;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public class DataSourceTest extends Assert {
+
+    @Test
+    public void poolMetrics() throws Exception {
+        DataSource dataSource = DataSource.getInstance();
+        long acquireCount = dataSource.getPoolMetrics().getAcquireCount();
+
+        try (Connection connection = dataSource.getConnection()) {
+            PoolMetrics metrics = dataSource.getPoolMetrics();
+            assertEquals(1, metrics.getAcquireCount() - acquireCount);
+            assertTrue(metrics.getBusyConnections() >= 1);
+            assertTrue(metrics.getMaxAcquireMillis() >= metrics.getAverageAcquireMillis());
+        }
+    }
+
+    @Test
+    public void resizePool() throws Exception {
+        DataSource dataSource = DataSource.getInstance();
+        PoolMetrics before = dataSource.getPoolMetrics();
+        try {
+            dataSource.resizePool(2, 4);
+            PoolMetrics resized = dataSource.getPoolMetrics();
+            assertEquals(2, resized.getMinPoolSize());
+            assertEquals(4, resized.getMaxPoolSize());
+
+            try (Connection connection = dataSource.getConnection()) {
+                assertFalse(connection.isClosed());
+            }
+        } finally {
+            dataSource.resizePool(before.getMinPoolSize(), before.getMaxPoolSize());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resizePoolInvalidBounds() throws Exception {
+        DataSource.getInstance().resizePool(5, 2);
+    }
+
+    @Test
+    public void heldConnectionReported() throws Exception {
+        DataSource dataSource = DataSource.getInstance();
+        try (Connection connection = dataSource.getConnection()) {
+            assertTrue(dataSource.getConnectionHolders().stream()
+                    .anyMatch(holder -> holder.contains(Thread.currentThread().getName())));
+        }
+    }
+
+    @Test
+    public void leakedConnectionReclaimed() throws Exception {
+        ConnectionLeakDetector detector = new ConnectionLeakDetector("test", () -> 1, 1, 1, 1000, true);
+        Connection connection = detector.track(DataSource.getInstance().getConnection());
+        assertEquals(1, detector.getHolders().size());
+
+        detector.beforeCheckout();
+        assertEquals(1, detector.getExhaustionCount());
+
+        Thread.sleep(5);
+        detector.check();
+        assertEquals(1, detector.getReclaimCount());
+        assertTrue(detector.getHolders().isEmpty());
+        assertTrue(connection.isClosed());
+        try {
+            connection.createStatement();
+            fail();
+        } catch (SQLException e) {
+            // expected
+        }
+        connection.close();
+    }
+}
@@ -0,0 +1,88 @@
+package db;
+
+import db.migration.MigrationRunner;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+public class PartitionMaintenanceTest extends Assert {
+    private static final String COUNT_PARTITIONS_SQL = "SELECT COUNT(*) FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME = ?";
+    private static final String GET_LAST_BOUND_SQL = "SELECT PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME <> 'p_future' " +
+            "ORDER BY PARTITION_ORDINAL_POSITION DESC LIMIT 1";
+
+    @Test
+    public void partitionsCreatedAhead() throws Exception {
+        new MigrationRunner().migrate();
+        PartitionMaintenance maintenance = new PartitionMaintenance();
+        maintenance.ensurePartitions();
+        assertEquals(0, maintenance.ensurePartitions());
+
+        // orders and their items are split by the same ranges of order ids
+        assertEquals(getLastBound("CoffeeOrderItem"), getLastBound("CoffeeOrder"));
+        assertEquals(1, countPartitions("CoffeeOrder", "p_future"));
+        assertEquals(1, countPartitions("CoffeeOrderItem", "p_future"));
+    }
+
+    @Test
+    public void oldEmptyPartitionsMerged() throws Exception {
+        try (Connection connection = DataSource.getInstance().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS PartitionMaintenanceTest");
+            statement.execute("CREATE TABLE PartitionMaintenanceTest (id INT PRIMARY KEY) " +
+                    "PARTITION BY RANGE (id) (PARTITION p_history VALUES LESS THAN (100), " +
+                    "PARTITION p100 VALUES LESS THAN (200), PARTITION p200 VALUES LESS THAN (300), " +
+                    "PARTITION p300 VALUES LESS THAN (400), PARTITION p400 VALUES LESS THAN (500), " +
+                    "PARTITION p_future VALUES LESS THAN (MAXVALUE))");
+            try {
+                statement.execute("INSERT INTO PartitionMaintenanceTest (id) VALUES (50), (350)");
+
+                // p_history and p300 have rows, p400 may still get rows
+                assertEquals(2, PartitionMaintenance.mergeEmptyPartitions(connection, "PartitionMaintenanceTest", 450));
+                assertEquals(0, countPartitions("PartitionMaintenanceTest", "p100"));
+                assertEquals(0, countPartitions("PartitionMaintenanceTest", "p200"));
+                assertEquals(1, countPartitions("PartitionMaintenanceTest", "p300"));
+                assertEquals(1, countPartitions("PartitionMaintenanceTest", "p400"));
+
+                // a late row of a merged range is kept in the next partition
+                statement.execute("INSERT INTO PartitionMaintenanceTest (id) VALUES (150)");
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT COUNT(*) FROM PartitionMaintenanceTest PARTITION (p300)")) {
+                    rs.next();
+                    assertEquals(2, rs.getInt(1));
+                }
+                assertEquals(0, PartitionMaintenance.mergeEmptyPartitions(connection, "PartitionMaintenanceTest", 450));
+            } finally {
+                statement.execute("DROP TABLE PartitionMaintenanceTest");
+            }
+        }
+    }
+
+    private static String getLastBound(String table) throws Exception {
+        try (Connection connection = DataSource.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(GET_LAST_BOUND_SQL)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(table, rs.next());
+                return rs.getString(1);
+            }
+        }
+    }
+
+    private static int countPartitions(String table, String partition) throws Exception {
+        try (Connection connection = DataSource.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement(COUNT_PARTITIONS_SQL)) {
+            ps.setString(1, table);
+            ps.setString(2, partition);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
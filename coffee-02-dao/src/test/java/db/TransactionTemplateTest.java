@@ -0,0 +1,100 @@
+package db;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TransactionTemplateTest extends Assert {
+
+    // the DAO tests leave their connection bound to the thread in a transaction
+    @Before
+    public void releaseConnection() {
+        ConnectionManager.releaseConnection();
+    }
+
+    @Test
+    public void connectionRestored() throws SQLException {
+        try (ConnectionScope scope = ConnectionManager.openScope()) {
+            Connection connection = ConnectionManager.getConnection();
+            int isolation = connection.getTransactionIsolation();
+
+            int result = TransactionTemplate.inTransaction(false, Connection.TRANSACTION_SERIALIZABLE, () -> {
+                assertSame(connection, ConnectionManager.getConnection());
+                assertFalse(connection.getAutoCommit());
+                assertEquals(Connection.TRANSACTION_SERIALIZABLE, connection.getTransactionIsolation());
+                // nested work is a part of the transaction
+                return TransactionTemplate.inTransaction(false, TransactionTemplate.DEFAULT_ISOLATION, () -> 1);
+            });
+            assertEquals(1, result);
+            assertTrue(connection.getAutoCommit());
+            assertEquals(isolation, connection.getTransactionIsolation());
+
+            try {
+                TransactionTemplate.inTransaction(false, TransactionTemplate.DEFAULT_ISOLATION, () -> {
+                    throw new SQLException("failed");
+                });
+                fail();
+            } catch (SQLException e) {
+                assertEquals("failed", e.getMessage());
+            }
+            assertTrue(connection.getAutoCommit());
+        }
+    }
+
+    @Test
+    public void noConnectionWithoutDatabaseWork() throws Exception {
+        try (ConnectionScope scope = ConnectionManager.openScope()) {
+            long acquires = DataSource.getInstance().getPoolMetrics().getAcquireCount();
+            assertEquals(1, (int) TransactionTemplate.inTransaction(false, TransactionTemplate.DEFAULT_ISOLATION,
+                    () -> 1));
+            assertEquals(acquires, DataSource.getInstance().getPoolMetrics().getAcquireCount());
+        }
+    }
+
+    @Test
+    public void readOnlyOnReplica() throws SQLException {
+        try (ConnectionScope scope = ConnectionManager.openScope()) {
+            Connection primary = ConnectionManager.getConnection();
+            Connection replica = TransactionTemplate.inTransaction(true, TransactionTemplate.DEFAULT_ISOLATION, () -> {
+                Connection connection = ConnectionManager.getConnection();
+                assertTrue(connection.isReadOnly());
+                assertFalse(connection.getAutoCommit());
+                return connection;
+            });
+            assertNotSame(primary, replica);
+            assertFalse(replica.isReadOnly());
+            assertTrue(replica.getAutoCommit());
+        }
+    }
+
+    @Test
+    public void retriedOnDeadlock() throws SQLException {
+        AtomicInteger attempts = new AtomicInteger();
+        try (ConnectionScope scope = ConnectionManager.openScope()) {
+            int result = TransactionTemplate.inTransaction(false, TransactionTemplate.DEFAULT_ISOLATION, () -> {
+                if (attempts.incrementAndGet() < 3) {
+                    throw new SQLException("Deadlock found when trying to get lock", "40001", 1213);
+                }
+                return attempts.get();
+            });
+            assertEquals(3, result);
+            assertTrue(ConnectionManager.getConnection().getAutoCommit());
+
+            // not a transient error
+            attempts.set(0);
+            try {
+                TransactionTemplate.inTransaction(false, TransactionTemplate.DEFAULT_ISOLATION, () -> {
+                    attempts.incrementAndGet();
+                    throw new SQLException("Duplicate entry", "23000", 1062);
+                });
+                fail();
+            } catch (SQLException e) {
+                assertEquals(1, attempts.get());
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package db.migration;
+
+import db.DataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class MigrationRunnerTest extends Assert {
+    private static final String HISTORY_TABLE = "SchemaMigrationTest";
+
+    private final MigrationRunner runner = new MigrationRunner("db/migration-test/", HISTORY_TABLE);
+
+    @After
+    public void dropTables() throws Exception {
+        execute("DROP TABLE IF EXISTS MigrationTestTable");
+        execute("DROP TABLE IF EXISTS " + HISTORY_TABLE);
+    }
+
+    @Test
+    public void appliedOnce() throws Exception {
+        assertEquals(2, runner.migrate());
+        assertEquals(0, runner.migrate());
+        assertEquals(2, count("MigrationTestTable"));
+        assertEquals(2, count(HISTORY_TABLE));
+    }
+
+    @Test(expected = SQLException.class)
+    public void changedMigrationRejected() throws Exception {
+        runner.migrate();
+        execute("UPDATE " + HISTORY_TABLE + " SET checksum = checksum + 1 WHERE version = 2");
+        runner.migrate();
+    }
+
+    @Test
+    public void scriptParsed() {
+        Migration migration = Migration.parse("V12__add_some_index.sql",
+                "-- comment; not a statement\r\ncreate index I on T (a);\r\n\r\ndrop index J on T;\r\n");
+        assertEquals(12, migration.getVersion());
+        assertEquals("add some index", migration.getDescription());
+        assertEquals(2, migration.getStatements().size());
+        assertEquals("drop index J on T", migration.getStatements().get(1));
+        assertEquals(migration.getChecksum(), Migration.parse("V12__add_some_index.sql",
+                "-- comment; not a statement\ncreate index I on T (a);\n\ndrop index J on T;\n").getChecksum());
+    }
+
+    private static void execute(String sql) throws Exception {
+        try (Connection connection = DataSource.getInstance().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static int count(String table) throws Exception {
+        try (Connection connection = DataSource.getInstance().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
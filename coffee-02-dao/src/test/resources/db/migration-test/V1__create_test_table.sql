@@ -0,0 +1,5 @@
+-- test table
+create table MigrationTestTable (
+  id int not null,
+  primary key (id)
+) engine=InnoDB;
@@ -0,0 +1,2 @@
+insert into MigrationTestTable (id) values (1);
+insert into MigrationTestTable (id) values (2);
@@ -7,7 +7,8 @@ import java.util.List;
 
 public interface CoffeeOrderItemService {
     /**
-     * get all records of CoffeeOrderItem from DB for definite CoffeeOrder with id = orderId
+     * get all records of CoffeeOrderItem from DB for definite CoffeeOrder with id = orderId,
+     * or from the order archive if the order was archived
      *
      * @param orderId determines id for CoffeeOrder
      * @return a list of all records of CoffeeOrderItem from the database
@@ -5,6 +5,8 @@ import entities.CoffeeOrderItem;
 import vo.CoffeeOrderAndCost;
 
 import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
 public interface CoffeeOrderService {
@@ -24,7 +26,8 @@ public interface CoffeeOrderService {
                                  List<CoffeeOrderItem> coffeeOrderItemList);
 
     /**
-     * returns an CoffeeOrder record with an id = coffeeOrderId from the database
+     * returns an CoffeeOrder record with an id = coffeeOrderId from the database,
+     * or from the order archive if the order was archived
      *
      * @param coffeeOrderId determine id of CoffeeOrder record in database
      * @return CoffeeOrder record from the database with id = coffeeOrderId, or
@@ -40,4 +43,27 @@ public interface CoffeeOrderService {
      * @return returns the number of deleted CoffeeOrder rows from the database
      */
     int delete(Serializable coffeeOrderId);
+
+    /**
+     * removes from the database all CoffeeOrder entities with id in coffeeOrderIds
+     * and all their CoffeeOrderItems, the number of statements doesn't depend on
+     * the number of CoffeeOrderItems
+     *
+     * @param coffeeOrderIds determine ids of entities in database
+     * @return returns the number of deleted CoffeeOrder rows from the database or
+     *         0 if coffeeOrderIds is null or empty
+     */
+    int deleteAll(Collection<Integer> coffeeOrderIds);
+
+    /**
+     * returns a page of the order history: CoffeeOrders from new to old that are older
+     * than the order with key (orderDate, id)
+     *
+     * @param orderDate determines order date of the last order of the previous page
+     *                  or null for the first page
+     * @param id determines id of the last order of the previous page
+     * @param pageSize determines the maximum number of orders in the page
+     * @return a list of CoffeeOrders or empty list if there are no older orders
+     */
+    List<CoffeeOrder> getHistoryPage(Timestamp orderDate, int id, int pageSize);
 }
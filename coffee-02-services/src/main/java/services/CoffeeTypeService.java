@@ -31,6 +31,8 @@ public interface CoffeeTypeService {
      *
      * @param coffeeType determine a new entity to be updated
      *                   in the database with id = coffeeType.id
+     * @throws ConcurrentUpdateException if coffeeType was changed or deleted by another user
+     *                                   after it was read
      */
     void update(CoffeeType coffeeType);
 
@@ -0,0 +1,11 @@
+package services;
+
+/**
+ * Thrown when an entity can't be updated because it was changed or deleted
+ * by another user after it was read
+ */
+public class ConcurrentUpdateException extends ServiceException {
+    public ConcurrentUpdateException(String message) {
+        super(message);
+    }
+}
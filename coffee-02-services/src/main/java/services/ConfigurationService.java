@@ -1,6 +1,7 @@
 package services;
 
 import entities.Configuration;
+import vo.PricingRules;
 
 import java.io.Serializable;
 
@@ -18,6 +19,14 @@ public interface ConfigurationService {
      */
     String getValue(String idKey);
 
+    /**
+     * returns the pricing configuration "n", "x" and "m" parsed, with the default
+     * configuration for the keys not in the database
+     *
+     * @return the current pricing rules
+     */
+    PricingRules getPricingRules();
+
     /**
      * returns an Configuration record with an id = configurationId from the database
      *
@@ -42,6 +51,8 @@ public interface ConfigurationService {
      *
      * @param configuration determine a new entity to be updated
      *                   in the database with id = configuration.id
+     * @throws ConcurrentUpdateException if configuration was changed or deleted by another user
+     *                                   after it was read
      */
     void update(Configuration configuration);
 
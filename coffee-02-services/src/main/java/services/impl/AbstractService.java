@@ -1,33 +1,51 @@
 package services.impl;
 
 import db.ConnectionManager;
-import services.ServiceException;
+import db.ReadOnlyScope;
+import db.TransactionTemplate;
+import db.TransactionWork;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 
 public class AbstractService {
-    public void startTransaction() throws SQLException {
-        ConnectionManager.getConnection().setAutoCommit(false);
-    }
-
-    public void stopTransaction() throws SQLException {
-        ConnectionManager.getConnection().setAutoCommit(true);
+    public Connection getConnection() {
+        return ConnectionManager.getConnection();
     }
 
-    public void commit() throws SQLException {
-        ConnectionManager.getConnection().commit();
+    /**
+     * Runs the work in a transaction that is committed or rolled back and retried
+     * on a deadlock, see TransactionTemplate
+     *
+     * @param readOnly determines whether the work only reads
+     * @param isolation determines the isolation level, one of Connection.TRANSACTION_* or
+     *                  TransactionTemplate.DEFAULT_ISOLATION
+     * @param work determines the work of the transaction
+     * @return the result of the work
+     * @throws SQLException if the work failed or the transaction can't be committed
+     */
+    public <R> R inTransaction(boolean readOnly, int isolation, TransactionWork<R> work) throws SQLException {
+        return TransactionTemplate.inTransaction(readOnly, isolation, work);
     }
 
-    public Connection getConnection() {
-        return ConnectionManager.getConnection();
+    /**
+     * Runs the work in a read-write transaction with the default isolation level
+     *
+     * @param work determines the work of the transaction
+     * @return the result of the work
+     * @throws SQLException if the work failed or the transaction can't be committed
+     */
+    public <R> R inTransaction(TransactionWork<R> work) throws SQLException {
+        return inTransaction(false, TransactionTemplate.DEFAULT_ISOLATION, work);
     }
 
-    public void rollback() {
-        try {
-            getConnection().rollback();
-        } catch (SQLException e) {
-            throw new ServiceException("rollback error");
-        }
+    /**
+     * Opens a read-only scope: DAO reads inside it go to the replica
+     * unless the current request has already written to the primary
+     *
+     * @return scope to be closed in try-with-resources
+     */
+    public ReadOnlyScope readOnly() {
+        return ConnectionManager.openReadOnlyScope();
     }
 }
@@ -7,7 +7,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import services.CoffeeOrderItemService;
 import services.ServiceException;
+import services.impl.archive.OrderArchive;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.sql.SQLException;
 import java.util.List;
@@ -17,15 +19,18 @@ public class CoffeeOrderItemServiceImpl extends AbstractService implements Coffe
     private static Logger log = Logger.getLogger(CoffeeOrderItemServiceImpl.class);
 
     private CoffeeOrderItemDao coffeeOrderItemDao;
+    private OrderArchive orderArchive;
 
     @Autowired
-    public CoffeeOrderItemServiceImpl(CoffeeOrderItemDao coffeeOrderItemDao) {
+    public CoffeeOrderItemServiceImpl(CoffeeOrderItemDao coffeeOrderItemDao, OrderArchive orderArchive) {
         super();
         this.coffeeOrderItemDao = coffeeOrderItemDao;
+        this.orderArchive = orderArchive;
     }
 
     /**
-     * get all records of CoffeeOrderItem from DB for definite CoffeeOrder with id = orderId
+     * get all records of CoffeeOrderItem from DB for definite CoffeeOrder with id = orderId,
+     * or from the order archive if the order was archived
      *
      * @param orderId determines id for CoffeeOrder
      * @return a list of all records of CoffeeOrderItem from the database
@@ -35,8 +40,12 @@ public class CoffeeOrderItemServiceImpl extends AbstractService implements Coffe
     @Override
     public List<CoffeeOrderItem> getAllForOrderId(Serializable orderId) {
         try {
-            return coffeeOrderItemDao.getAllForOrderId(orderId);
-        } catch (SQLException e) {
+            List<CoffeeOrderItem> coffeeOrderItemList = coffeeOrderItemDao.getAllForOrderId(orderId);
+            if (coffeeOrderItemList.isEmpty()) {
+                orderArchive.get((Integer) orderId, coffeeOrderItemList);
+            }
+            return coffeeOrderItemList;
+        } catch (SQLException | IOException e) {
             String errorMessage = "Error getting all CoffeeOrderItems where CoffeeOrderItem.orderId: " +
                     orderId;
             log.error(errorMessage + e.getMessage());
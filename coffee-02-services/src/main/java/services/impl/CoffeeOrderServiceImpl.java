@@ -3,6 +3,8 @@ package services.impl;
 import dao.CoffeeOrderDao;
 import dao.CoffeeOrderItemDao;
 import dao.CoffeeTypeDao;
+import dao.IdAllocator;
+import db.ReadOnlyScope;
 import entities.CoffeeOrder;
 import entities.CoffeeOrderItem;
 import entities.CoffeeType;
@@ -12,13 +14,22 @@ import org.springframework.stereotype.Service;
 import services.CoffeeOrderService;
 import services.ConfigurationService;
 import services.ServiceException;
+import services.impl.archive.OrderArchive;
+import services.impl.commit.OrderGroupCommit;
+import services.impl.journal.OrderWriteBehind;
 import vo.CoffeeOrderAndCost;
 import vo.Cost;
+import vo.PricingRules;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CoffeeOrderServiceImpl extends AbstractService implements CoffeeOrderService {
@@ -28,21 +39,35 @@ public class CoffeeOrderServiceImpl extends AbstractService implements CoffeeOrd
     private CoffeeOrderItemDao coffeeOrderItemDao;
     private CoffeeTypeDao coffeeTypeDao;
     private ConfigurationService configurationService;
+    private OrderWriteBehind orderWriteBehind;
+    private IdAllocator idAllocator;
+    private OrderArchive orderArchive;
+    private OrderGroupCommit orderGroupCommit;
 
     @Autowired
     public CoffeeOrderServiceImpl(CoffeeOrderDao coffeeOrderDao, CoffeeOrderItemDao coffeeOrderItemDao,
-                                   CoffeeTypeDao coffeeTypeDao, ConfigurationService configurationService) {
+                                   CoffeeTypeDao coffeeTypeDao, ConfigurationService configurationService,
+                                   OrderWriteBehind orderWriteBehind, IdAllocator idAllocator,
+                                   OrderArchive orderArchive, OrderGroupCommit orderGroupCommit) {
         super();
         this.coffeeOrderDao = coffeeOrderDao;
         this.coffeeOrderItemDao = coffeeOrderItemDao;
         this.coffeeTypeDao = coffeeTypeDao;
         this.configurationService = configurationService;
+        this.orderWriteBehind = orderWriteBehind;
+        this.idAllocator = idAllocator;
+        this.orderArchive = orderArchive;
+        this.orderGroupCommit = orderGroupCommit;
     }
 
     /**
      * Forms an order for not empty list of order elements and deliveryAddress != null,
      * calculates the cost of delivery and ordered coffee. If the formation is successful,
-     * it saves the order and the list of order items in the database
+     * it saves the order and the list of order items in the database in one transaction,
+     * retried on a deadlock. In the write-behind mode the order is put in the journal and
+     * saved later. In the group commit mode the order is saved in one transaction with the
+     * orders of concurrent calls. Ids of the order and its items are taken from IdAllocator,
+     * so all of them are known before the order is saved
      *
      * @param customerName        determines the name of the customer
      * @param deliveryAddress     determines the delivery address
@@ -58,8 +83,7 @@ public class CoffeeOrderServiceImpl extends AbstractService implements CoffeeOrd
                 ! coffeeOrderItemList.isEmpty()) {
             CoffeeOrder coffeeOrder = new CoffeeOrder();
             try {
-                this.startTransaction();
-                // form Order data & save in Db
+                // form Order data
                 Date currentDate = new java.util.Date();
                 java.sql.Timestamp timestamp = new java.sql.Timestamp(currentDate.getTime());
                 coffeeOrder.setOrderDate(timestamp);
@@ -67,23 +91,32 @@ public class CoffeeOrderServiceImpl extends AbstractService implements CoffeeOrd
                 coffeeOrder.setDeliveryAddress(deliveryAddress);
                 Cost cost = costCalculate(coffeeOrderItemList);
                 coffeeOrder.setCost(cost.getCoffeeTotalCost() + cost.getDeliveryCost());
-                coffeeOrder = coffeeOrderDao.save(coffeeOrder);
-
-                // save Order Items in Db
+                coffeeOrder.setId(idAllocator.nextId(IdAllocator.COFFEE_ORDER));
                 for (CoffeeOrderItem item : coffeeOrderItemList) {
+                    item.setId(idAllocator.nextId(IdAllocator.COFFEE_ORDER_ITEM));
                     item.setOrderId(coffeeOrder.getId());
-                    coffeeOrderItemDao.save(item);
                 }
-                this.commit();
-                this.stopTransaction();
 
                 CoffeeOrderAndCost coffeeOrderAndCost = new CoffeeOrderAndCost();
                 coffeeOrderAndCost.setCoffeeOrder(coffeeOrder);
                 coffeeOrderAndCost.setCost(cost);
+                if (orderWriteBehind.append(coffeeOrder, coffeeOrderItemList)) {
+                    return coffeeOrderAndCost;
+                }
+
+                if (orderGroupCommit.save(coffeeOrder, coffeeOrderItemList)) {
+                    return coffeeOrderAndCost;
+                }
+
+                // write-behind mode is off or the journal is full, save in Db,
+                // Order Items in one batch
+                inTransaction(() -> {
+                    coffeeOrderDao.save(coffeeOrder);
+                    return coffeeOrderItemDao.saveAll(coffeeOrderItemList);
+                });
 
                 return coffeeOrderAndCost;
             } catch (SQLException e) {
-                rollback();
                 String errorMessage = "Error saving CoffeeOrder: " + coffeeOrder;
                 log.error(errorMessage + e.getMessage());
                 throw new ServiceException(errorMessage);
@@ -95,7 +128,8 @@ public class CoffeeOrderServiceImpl extends AbstractService implements CoffeeOrd
     }
 
     /**
-     * returns an CoffeeOrder record with an id = coffeeOrderId from the database
+     * returns an CoffeeOrder record with an id = coffeeOrderId from the database,
+     * or from the order archive if the order was archived
      *
      * @param coffeeOrderId determine id of CoffeeOrder record in database
      * @return CoffeeOrder record from the database with id = coffeeOrderId, or
@@ -103,15 +137,38 @@ public class CoffeeOrderServiceImpl extends AbstractService implements CoffeeOrd
      */
     @Override
     public CoffeeOrder get(Serializable coffeeOrderId) {
-        try {
-            return coffeeOrderDao.get(coffeeOrderId);
-        } catch (SQLException e) {
+        try (ReadOnlyScope readOnly = readOnly()) {
+            CoffeeOrder coffeeOrder = coffeeOrderDao.get(coffeeOrderId);
+            return coffeeOrder != null ? coffeeOrder
+                    : orderArchive.get((Integer) coffeeOrderId, new ArrayList<>());
+        } catch (SQLException | IOException e) {
             String errorMessage = "Error getting CoffeeOrder by id: " + coffeeOrderId;
             log.error(errorMessage + e.getMessage());
             throw new ServiceException(errorMessage);
         }
     }
 
+    /**
+     * returns a page of the order history: CoffeeOrders from new to old that are older
+     * than the order with key (orderDate, id)
+     *
+     * @param orderDate determines order date of the last order of the previous page
+     *                  or null for the first page
+     * @param id determines id of the last order of the previous page
+     * @param pageSize determines the maximum number of orders in the page
+     * @return a list of CoffeeOrders or empty list if there are no older orders
+     */
+    @Override
+    public List<CoffeeOrder> getHistoryPage(Timestamp orderDate, int id, int pageSize) {
+        try (ReadOnlyScope readOnly = readOnly()) {
+            return coffeeOrderDao.getPageBefore(orderDate, id, pageSize);
+        } catch (SQLException e) {
+            String errorMessage = "Error getting CoffeeOrder history page before: " + orderDate + ", " + id;
+            log.error(errorMessage + e.getMessage());
+            throw new ServiceException(errorMessage);
+        }
+    }
+
     /**
      * removes from the database an CoffeeOrder entity with an id = coffeeOrderId
      * and all CoffeeOrderItems where CoffeeOrderItem.orderId = coffeeOrderId
@@ -122,65 +179,69 @@ public class CoffeeOrderServiceImpl extends AbstractService implements CoffeeOrd
     @Override
     public int delete(Serializable coffeeOrderId) {
         try {
-            this.startTransaction();
-            List<CoffeeOrderItem> coffeeOrderItemList = coffeeOrderItemDao.getAllForOrderId(coffeeOrderId);
-            for (CoffeeOrderItem item : coffeeOrderItemList) {
-                coffeeOrderItemDao.delete(item.getId());
-            }
-            int deletedRecords = coffeeOrderDao.delete(coffeeOrderId);
-            this.commit();
-            this.stopTransaction();
-
-            return deletedRecords;
+            return inTransaction(() -> {
+                coffeeOrderItemDao.deleteAllForOrderId(coffeeOrderId);
+                return coffeeOrderDao.delete(coffeeOrderId);
+            });
         } catch (SQLException e) {
-            rollback();
             String errorMessage = "Error deleting from DB CoffeeOrder with id: " + coffeeOrderId;
             log.error(errorMessage + e.getMessage());
             throw new ServiceException(errorMessage);
         }
     }
 
+    /**
+     * removes from the database all CoffeeOrder entities with id in coffeeOrderIds
+     * and all their CoffeeOrderItems, the number of statements doesn't depend on
+     * the number of CoffeeOrderItems
+     *
+     * @param coffeeOrderIds determine ids of entities in database
+     * @return returns the number of deleted CoffeeOrder rows from the database or
+     *         0 if coffeeOrderIds is null or empty
+     */
+    @Override
+    public int deleteAll(Collection<Integer> coffeeOrderIds) {
+        if (coffeeOrderIds == null || coffeeOrderIds.isEmpty()) {
+            return 0;
+        }
+        try {
+            return inTransaction(() -> {
+                coffeeOrderItemDao.deleteAllForOrderIds(coffeeOrderIds);
+                return coffeeOrderDao.deleteAll(coffeeOrderIds);
+            });
+        } catch (SQLException e) {
+            String errorMessage = "Error deleting from DB CoffeeOrders with ids: " + coffeeOrderIds;
+            log.error(errorMessage + e.getMessage());
+            throw new ServiceException(errorMessage);
+        }
+    }
+
     private Cost costCalculate(List<CoffeeOrderItem> coffeeOrderItemList) throws SQLException {
 
-        // take configuration for free cup
-        String parameterN = configurationService.getValue("n");
-        int freeCupN;
-        if (parameterN == null) {
-            throw new SQLException("There is no default configuration or configuration " +
-                    "stored in the database for the key: [n]");
-        } else {
-            freeCupN = Integer.valueOf(parameterN);
-        }
+        // take pricing configuration: every n cup is free, delivery price m,
+        // delivery is free for order total more than x
+        PricingRules pricingRules = configurationService.getPricingRules();
+        int freeCupN = pricingRules.getFreeCupN();
         if (freeCupN == 0) {
             throw new SQLException("Configuration with key [n] can't has [zero] value! ");
         }
+        double minOrderTotalForFreeDeliveryX = pricingRules.getFreeDeliveryThreshold();
+        double deliveryPriceM = pricingRules.getDeliveryPrice();
 
-        // take configuration for min Order Total Sum for free delivery
-        String parameterX = configurationService.getValue("x");
-        double minOrderTotalForFreeDeliveryX;
-        if (parameterX == null) {
-            throw new SQLException("There is no default configuration or configuration " +
-                    "stored in the database for the key: [x]");
-        } else {
-            minOrderTotalForFreeDeliveryX = Double.valueOf(parameterX);
-        }
-        // take configuration for delivery price
-        String parameterM = configurationService.getValue("m");
-        double deliveryPriceM;
-        if (parameterM == null) {
-            throw new SQLException("There is no default configuration or configuration " +
-                    "stored in the database for the key: [m]");
-        } else {
-            deliveryPriceM = Double.valueOf(parameterM);
+        // take all CoffeeTypes of the Order in one query
+        List<Integer> coffeeTypeIds = new ArrayList<>();
+        for (CoffeeOrderItem item : coffeeOrderItemList) {
+            coffeeTypeIds.add(item.getCoffeeTypeId());
         }
+        Map<Integer, CoffeeType> coffeeTypes = coffeeTypeDao.getAllByIds(coffeeTypeIds);
 
         // calculate cost for Order items list
         int cupsNumberInOrder = 0;
         double costCoffee = 0;
         for (CoffeeOrderItem item : coffeeOrderItemList) {
-            CoffeeType coffeeType = coffeeTypeDao.get(item.getCoffeeTypeId());
+            CoffeeType coffeeType = coffeeTypes.get(item.getCoffeeTypeId());
             if (coffeeType == null) {
-                throw new SQLException("There is no in database CoffeeType with id: " + item.getId());
+                throw new SQLException("There is no in database CoffeeType with id: " + item.getCoffeeTypeId());
             }
             for (int i = 0; i < item.getQuantity(); i++) {
                 cupsNumberInOrder++;
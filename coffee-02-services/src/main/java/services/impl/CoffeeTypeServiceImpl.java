@@ -1,41 +1,70 @@
 package services.impl;
 
 import dao.CoffeeTypeDao;
+import dao.OptimisticLockException;
+import db.DbProperties;
+import db.ReadOnlyScope;
 import entities.CoffeeType;
 import entities.enums.DisabledFlag;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import services.ConcurrentUpdateException;
 import services.CoffeeTypeService;
 import services.ServiceException;
 
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * CoffeeTypes are read from a snapshot of the catalog: an immutable list of all CoffeeTypes
+ * with an index by id, held in a volatile field. The snapshot is reloaded after every
+ * add, update and delete of the service and when it is older than catalog.ttlSeconds,
+ * for the changes made by other instances. Reads don't take locks and don't go to
+ * the database: an expired snapshot is reloaded by one reader while the others keep
+ * reading it, only the first load is waited for. catalog.ttlSeconds=0 turns the snapshot off.
+ */
 @Service
 public class CoffeeTypeServiceImpl extends AbstractService implements CoffeeTypeService {
     private static Logger log = Logger.getLogger(CoffeeTypeServiceImpl.class);
 
     private CoffeeTypeDao coffeeTypeDao;
+    private final long catalogTtlNanos;
+    // null until the first read or after a failed reload
+    private volatile Catalog catalog;
+    private final ReentrantLock reloadLock = new ReentrantLock();
 
    @Autowired
     public CoffeeTypeServiceImpl(CoffeeTypeDao coffeeTypeDao) {
        super();
        this.coffeeTypeDao = coffeeTypeDao;
+       this.catalogTtlNanos = TimeUnit.SECONDS.toNanos(DbProperties.getLong("catalog.ttlSeconds", 60));
     }
 
     /**
-     * returns an CoffeeType record with an id = coffeeTypeId from the database
+     * returns an CoffeeType record with an id = coffeeTypeId from the catalog snapshot
      *
      * @param coffeeTypeId determine id of CoffeeType record in database
-     * @return CoffeeType record from the database with id = coffeeTypeId, or
+     * @return a copy of CoffeeType record with id = coffeeTypeId, or
      * null if such an entity was not found
      */
     @Override
     public CoffeeType get(Serializable coffeeTypeId) {
         try {
-            return coffeeTypeDao.get(coffeeTypeId);
+            Catalog current = catalog();
+            // the catalog is keyed by int ids, ids that aren't numbers are left to the DAO
+            if (current == null || !(coffeeTypeId instanceof Number)) {
+                return coffeeTypeDao.get(coffeeTypeId);
+            }
+            return copy(current.byId.get(((Number) coffeeTypeId).intValue()));
         } catch (SQLException e) {
             String errorMessage = "Error getting CoffeeType by id: " + coffeeTypeId;
             log.error(errorMessage + e.getMessage());
@@ -56,13 +85,10 @@ public class CoffeeTypeServiceImpl extends AbstractService implements CoffeeType
             return null;
         }
         try {
-            this.startTransaction();
-            CoffeeType coffeeTypeSave = coffeeTypeDao.save(coffeeType);
-            this.commit();
-            this.stopTransaction();
+            CoffeeType coffeeTypeSave = inTransaction(() -> coffeeTypeDao.save(coffeeType));
+            reloadCatalog();
             return coffeeTypeSave;
         } catch (SQLException e) {
-            rollback();
             String errorMessage = "Error saving CoffeeType: " + coffeeType;
             log.error(errorMessage + e.getMessage());
             throw new ServiceException(errorMessage);
@@ -75,6 +101,8 @@ public class CoffeeTypeServiceImpl extends AbstractService implements CoffeeType
      *
      * @param coffeeType determine a new entity to be updated
      *                   in the database with id = coffeeType.id
+     * @throws ConcurrentUpdateException if coffeeType was changed or deleted by another user
+     *                                   after it was read
      */
     @Override
     public void update(CoffeeType coffeeType) {
@@ -82,12 +110,17 @@ public class CoffeeTypeServiceImpl extends AbstractService implements CoffeeType
             return;
         }
         try {
-            this.startTransaction();
-            coffeeTypeDao.update(coffeeType);
-            this.commit();
-            this.stopTransaction();
+            inTransaction(() -> {
+                coffeeTypeDao.update(coffeeType);
+                return null;
+            });
+            reloadCatalog();
+        } catch (OptimisticLockException e) {
+            log.warn(e.getMessage());
+            // the row was changed by another instance: the snapshot must give out its new version
+            reloadCatalog();
+            throw new ConcurrentUpdateException("CoffeeType was changed by another user: " + coffeeType);
         } catch (SQLException e) {
-            rollback();
             String errorMessage = "Error updating CoffeeType: " + coffeeType;
             log.error(errorMessage + e.getMessage());
             throw new ServiceException(errorMessage);
@@ -103,14 +136,10 @@ public class CoffeeTypeServiceImpl extends AbstractService implements CoffeeType
     @Override
     public int delete(Serializable coffeeTypeId) {
         try {
-            this.startTransaction();
-            int deletedRecords = coffeeTypeDao.delete(coffeeTypeId);
-            this.commit();
-            this.stopTransaction();
-
+            int deletedRecords = inTransaction(() -> coffeeTypeDao.delete(coffeeTypeId));
+            reloadCatalog();
             return deletedRecords;
         } catch (SQLException e) {
-            rollback();
             String errorMessage = "Error deleting from DB CoffeeType with id: " + coffeeTypeId;
             log.error(errorMessage + e.getMessage());
             throw new ServiceException(errorMessage);
@@ -118,15 +147,19 @@ public class CoffeeTypeServiceImpl extends AbstractService implements CoffeeType
     }
 
     /**
-     * get all records of CoffeeTypes from DB
+     * get all records of CoffeeTypes from the catalog snapshot
      *
-     * @return a list of all records of CoffeeTypes from the database
+     * @return a list of copies of all records of CoffeeTypes
      *         or empty list if there are no entries
      */
     @Override
     public List<CoffeeType> getAll() {
         try {
-            return coffeeTypeDao.getAll();
+            Catalog current = catalog();
+            if (current == null) {
+                return loadAll();
+            }
+            return copy(current.all);
         } catch (SQLException e) {
             String errorMessage = "Error getting all CoffeeType from database.";
             log.error(errorMessage + e.getMessage());
@@ -135,21 +168,133 @@ public class CoffeeTypeServiceImpl extends AbstractService implements CoffeeType
     }
 
     /**
-     * get all records of CoffeeTypes from DB where CoffeeType.disabled = disabledFlag
+     * get all records of CoffeeTypes from the catalog snapshot where CoffeeType.disabled = disabledFlag
      *
      * @param disabledFlag determines whether ("N") or not ("Y") to show on the UI given CoffeeType
-     * @return a list of all records of CoffeeTypes from the database
+     * @return a list of copies of all records of CoffeeTypes
      *         where CoffeeType.disabled = disabledFlag or
      *         empty list if there are no entries
      */
     @Override
     public List<CoffeeType> getAllForDisabledFlag(DisabledFlag disabledFlag) {
         try {
-            return coffeeTypeDao.getAllForDisabledFlag(disabledFlag);
+            Catalog current = catalog();
+            if (current == null) {
+                try (ReadOnlyScope readOnly = readOnly()) {
+                    return coffeeTypeDao.getAllForDisabledFlag(disabledFlag);
+                }
+            }
+            return copy(current.byDisabledFlag.getOrDefault(disabledFlag, Collections.emptyList()));
         } catch (SQLException e) {
             String errorMessage = "Error getting all CoffeeType where CoffeeType.disabled: " + disabledFlag;
             log.error(errorMessage + e.getMessage());
             throw new ServiceException(errorMessage);
         }
     }
+
+    // the current snapshot or null if the snapshot is off, an expired one is reloaded by the thread
+    // that gets the lock, the other threads don't wait and read the expired one meanwhile
+    private Catalog catalog() throws SQLException {
+        if (catalogTtlNanos <= 0) {
+            return null;
+        }
+        Catalog current = catalog;
+        if (current == null) {
+            return loadCatalog();
+        }
+        if (System.nanoTime() - current.loadedNanos > catalogTtlNanos && reloadLock.tryLock()) {
+            try {
+                // not reloaded by another thread meanwhile
+                if (catalog == current) {
+                    catalog = new Catalog(loadAll());
+                }
+                return catalog;
+            } catch (SQLException e) {
+                log.error("Error reloading expired CoffeeType catalog " + e.getMessage());
+                return current;
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    // the first load or the load after a failed reload, there is no snapshot to read meanwhile
+    private Catalog loadCatalog() throws SQLException {
+        reloadLock.lock();
+        try {
+            if (catalog == null) {
+                catalog = new Catalog(loadAll());
+            }
+            return catalog;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // after a change of the service: the reads of the thread go to the primary and see the change
+    private void reloadCatalog() {
+        if (catalogTtlNanos <= 0) {
+            return;
+        }
+        reloadLock.lock();
+        try {
+            catalog = new Catalog(loadAll());
+        } catch (SQLException e) {
+            // the next read loads it again
+            catalog = null;
+            log.error("Error reloading CoffeeType catalog " + e.getMessage());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private List<CoffeeType> loadAll() throws SQLException {
+        try (ReadOnlyScope readOnly = readOnly()) {
+            return coffeeTypeDao.getAll();
+        }
+    }
+
+    // entities are mutable, the snapshot gives out copies
+    private static List<CoffeeType> copy(List<CoffeeType> coffeeTypes) {
+        List<CoffeeType> list = new ArrayList<>(coffeeTypes.size());
+        for (CoffeeType coffeeType : coffeeTypes) {
+            list.add(copy(coffeeType));
+        }
+        return list;
+    }
+
+    private static CoffeeType copy(CoffeeType coffeeType) {
+        if (coffeeType == null) {
+            return null;
+        }
+        CoffeeType copy = new CoffeeType();
+        copy.setId(coffeeType.getId());
+        copy.setTypeName(coffeeType.getTypeName());
+        copy.setPrice(coffeeType.getPrice());
+        copy.setDisabled(coffeeType.getDisabled());
+        copy.setVersion(coffeeType.getVersion());
+        return copy;
+    }
+
+    /**
+     * Immutable snapshot of all CoffeeTypes
+     */
+    private static class Catalog {
+        private final List<CoffeeType> all;
+        private final Map<Integer, CoffeeType> byId = new HashMap<>();
+        private final Map<DisabledFlag, List<CoffeeType>> byDisabledFlag = new EnumMap<>(DisabledFlag.class);
+        private final long loadedNanos = System.nanoTime();
+
+        Catalog(List<CoffeeType> coffeeTypes) {
+            this.all = Collections.unmodifiableList(new ArrayList<>(coffeeTypes));
+            for (CoffeeType coffeeType : all) {
+                byId.put(coffeeType.getId(), coffeeType);
+                if (coffeeType.getDisabled() != null) {
+                    byDisabledFlag.computeIfAbsent(coffeeType.getDisabled(), flag -> new ArrayList<>())
+                            .add(coffeeType);
+                }
+            }
+        }
+    }
 }
@@ -1,23 +1,47 @@
 package services.impl;
 
 import dao.ConfigurationDao;
+import dao.OptimisticLockException;
+import db.DbProperties;
+import db.ReadOnlyScope;
 import entities.Configuration;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import services.ConcurrentUpdateException;
 import services.ConfigurationService;
 import services.ServiceException;
+import vo.PricingRules;
 
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * The pricing configuration "n", "x" and "m" is read from an immutable snapshot with the values
+ * and the parsed PricingRules, held in a volatile field. The snapshot is reloaded after every
+ * add, update and delete of the service and when it is older than pricing.ttlSeconds,
+ * for the changes made by other instances. An expired snapshot is reloaded by one reader while
+ * the others keep reading it, only the first load is waited for. pricing.ttlSeconds=0 turns
+ * the snapshot off.
+ */
 @Service
 public class ConfigurationServiceImpl extends AbstractService implements ConfigurationService {
     private static Logger log = Logger.getLogger(ConfigurationServiceImpl.class);
 
+    private static final List<String> PRICING_KEYS = Arrays.asList("n", "x", "m");
+
     private ConfigurationDao configurationDao;
+    private final long pricingTtlNanos;
+    // null until the first read or after a failed reload
+    private volatile PricingSnapshot pricing;
+    private final ReentrantLock reloadLock = new ReentrantLock();
 
     private final Map<String,String> DEFAULT_CONFIGURATION = new HashMap<>();
     {
@@ -30,6 +54,7 @@ public class ConfigurationServiceImpl extends AbstractService implements Configu
     public ConfigurationServiceImpl(ConfigurationDao configurationDao) {
         super();
         this.configurationDao = configurationDao;
+        this.pricingTtlNanos = TimeUnit.SECONDS.toNanos(DbProperties.getLong("pricing.ttlSeconds", 60));
     }
 
     /**
@@ -46,19 +71,11 @@ public class ConfigurationServiceImpl extends AbstractService implements Configu
     @Override
     public String getValue(String idKey) {
         try {
-            String configurationValue = null;
-            Configuration configuration = configurationDao.get(idKey);
-            if (configuration == null) {
-                configurationValue = DEFAULT_CONFIGURATION.get(idKey);
-            } else {
-                configurationValue = configuration.getValue();
-            }
-            // "n" configuration can't be zero
-            if ("n".equals(idKey) && Integer.valueOf(configurationValue) == 0) {
-                configurationValue = DEFAULT_CONFIGURATION.get(idKey);
+            PricingSnapshot current = pricingSnapshot();
+            if (current != null && current.values.containsKey(idKey)) {
+                return current.values.get(idKey);
             }
-
-            return configurationValue;
+            return loadValue(idKey);
         } catch (SQLException e) {
             String errorMessage = "Error getting Configuration by id: " + idKey;
             log.error(errorMessage + e.getMessage());
@@ -66,6 +83,25 @@ public class ConfigurationServiceImpl extends AbstractService implements Configu
         }
     }
 
+    /**
+     * returns the pricing configuration "n", "x" and "m" parsed, with the default
+     * configuration for the keys not in the database. A value that isn't a number
+     * is replaced by the default one.
+     *
+     * @return the current pricing rules
+     */
+    @Override
+    public PricingRules getPricingRules() {
+        try {
+            PricingSnapshot current = pricingSnapshot();
+            return current != null ? current.rules : loadPricing().rules;
+        } catch (SQLException e) {
+            String errorMessage = "Error getting pricing Configuration";
+            log.error(errorMessage + e.getMessage());
+            throw new ServiceException(errorMessage);
+        }
+    }
+
     /**
      * returns an Configuration record with an id = configurationId from the database
      *
@@ -97,14 +133,10 @@ public class ConfigurationServiceImpl extends AbstractService implements Configu
             return null;
         }
         try {
-            this.startTransaction();
-            Configuration configurationSave = configurationDao.save(configuration);
-            this.commit();
-            this.stopTransaction();
-
+            Configuration configurationSave = inTransaction(() -> configurationDao.save(configuration));
+            reloadPricing();
             return configurationSave;
         } catch (SQLException e) {
-            rollback();
             String errorMessage = "Error saving Configuration: " + configuration;
             log.error(errorMessage + e.getMessage());
             throw new ServiceException(errorMessage);
@@ -117,6 +149,8 @@ public class ConfigurationServiceImpl extends AbstractService implements Configu
      *
      * @param configuration determine a new entity to be updated
      *                      in the database with id = configuration.id
+     * @throws ConcurrentUpdateException if configuration was changed or deleted by another user
+     *                                   after it was read
      */
     @Override
     public void update(Configuration configuration) {
@@ -124,12 +158,15 @@ public class ConfigurationServiceImpl extends AbstractService implements Configu
             return;
         }
         try {
-            this.startTransaction();
-            configurationDao.update(configuration);
-            this.commit();
-            this.stopTransaction();
+            inTransaction(() -> {
+                configurationDao.update(configuration);
+                return null;
+            });
+            reloadPricing();
+        } catch (OptimisticLockException e) {
+            log.warn(e.getMessage());
+            throw new ConcurrentUpdateException("Configuration was changed by another user: " + configuration);
         } catch (SQLException e) {
-            rollback();
             String errorMessage = "Error updating Configuration: " + configuration;
             log.error(errorMessage + e.getMessage());
             throw new ServiceException(errorMessage);
@@ -145,17 +182,126 @@ public class ConfigurationServiceImpl extends AbstractService implements Configu
     @Override
     public int delete(Serializable configurationId) {
         try {
-            this.startTransaction();
-            int deletedRecords = configurationDao.delete(configurationId);
-            this.commit();
-            this.stopTransaction();
-
+            int deletedRecords = inTransaction(() -> configurationDao.delete(configurationId));
+            reloadPricing();
             return deletedRecords;
         } catch (SQLException e) {
-            rollback();
             String errorMessage = "Error deleting from DB Configuration with id: " + configurationId;
             log.error(errorMessage + e.getMessage());
             throw new ServiceException(errorMessage);
         }
     }
+
+    // the value from the database or the default one
+    private String loadValue(String idKey) throws SQLException {
+        try (ReadOnlyScope readOnly = readOnly()) {
+            String configurationValue = null;
+            Configuration configuration = configurationDao.get(idKey);
+            if (configuration == null) {
+                configurationValue = DEFAULT_CONFIGURATION.get(idKey);
+            } else {
+                configurationValue = configuration.getValue();
+            }
+            // "n" configuration can't be zero
+            if ("n".equals(idKey) && Integer.valueOf(configurationValue) == 0) {
+                configurationValue = DEFAULT_CONFIGURATION.get(idKey);
+            }
+
+            return configurationValue;
+        }
+    }
+
+    // the current snapshot or null if the snapshot is off, an expired one is reloaded by the thread
+    // that gets the lock, the other threads don't wait and read the expired one meanwhile
+    private PricingSnapshot pricingSnapshot() throws SQLException {
+        if (pricingTtlNanos <= 0) {
+            return null;
+        }
+        PricingSnapshot current = pricing;
+        if (current == null) {
+            return loadPricingSnapshot();
+        }
+        if (System.nanoTime() - current.loadedNanos > pricingTtlNanos && reloadLock.tryLock()) {
+            try {
+                // not reloaded by another thread meanwhile
+                if (pricing == current) {
+                    pricing = loadPricing();
+                }
+                return pricing;
+            } catch (SQLException e) {
+                log.error("Error reloading expired pricing Configuration " + e.getMessage());
+                return current;
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    // the first load or the load after a failed reload, there is no snapshot to read meanwhile
+    private PricingSnapshot loadPricingSnapshot() throws SQLException {
+        reloadLock.lock();
+        try {
+            if (pricing == null) {
+                pricing = loadPricing();
+            }
+            return pricing;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    // after a change of the service: the reads of the thread go to the primary and see the change
+    private void reloadPricing() {
+        if (pricingTtlNanos <= 0) {
+            return;
+        }
+        reloadLock.lock();
+        try {
+            pricing = loadPricing();
+        } catch (SQLException e) {
+            // the next read loads it again
+            pricing = null;
+            log.error("Error reloading pricing Configuration " + e.getMessage());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private PricingSnapshot loadPricing() throws SQLException {
+        Map<String, String> values = new HashMap<>();
+        for (String key : PRICING_KEYS) {
+            String value;
+            try {
+                value = loadValue(key);
+                if ("n".equals(key)) {
+                    Integer.parseInt(value);
+                } else {
+                    Double.parseDouble(value);
+                }
+            } catch (NumberFormatException | NullPointerException e) {
+                log.error("Invalid value of Configuration " + key + ", use default " + DEFAULT_CONFIGURATION.get(key));
+                value = DEFAULT_CONFIGURATION.get(key);
+            }
+            values.put(key, value);
+        }
+
+        PricingRules rules = new PricingRules(Integer.parseInt(values.get("n")),
+                Double.parseDouble(values.get("x")), Double.parseDouble(values.get("m")));
+        return new PricingSnapshot(Collections.unmodifiableMap(values), rules);
+    }
+
+    /**
+     * Immutable snapshot of the pricing configuration
+     */
+    private static class PricingSnapshot {
+        private final Map<String, String> values;
+        private final PricingRules rules;
+        private final long loadedNanos = System.nanoTime();
+
+        PricingSnapshot(Map<String, String> values, PricingRules rules) {
+            this.values = values;
+            this.rules = rules;
+        }
+    }
 }
@@ -0,0 +1,264 @@
+package services.impl.archive;
+
+import entities.CoffeeOrder;
+import entities.CoffeeOrderItem;
+import services.impl.journal.OrderWriteBehind;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable file of archived orders sorted by id.
+ * <p>
+ * The orders are stored in deflate-compressed blocks of {@link #ORDERS_PER_BLOCK} orders,
+ * a block is [int count] and [int length][order record] for every order of it, the record
+ * is the one of the order journal. After the blocks go the sparse index: [int first id]
+ * [long offset][int uncompressed length] per block, and the footer: [long index offset]
+ * [int block count][int last id][int magic]. A lookup reads and inflates one block.
+ * The file is written under a temporary name and renamed when it is complete.
+ */
+public class ArchiveSegment {
+    static final int ORDERS_PER_BLOCK = 64;
+    private static final int MAGIC = 0x434F4131; // "COA1"
+    private static final int HEADER_SIZE = 4;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int FOOTER_SIZE = 20;
+
+    private final Path file;
+    private final int[] firstIds;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final long indexOffset;
+    private final int lastId;
+
+    private ArchiveSegment(Path file, int[] firstIds, long[] offsets, int[] lengths, long indexOffset,
+                           int lastId) {
+        this.file = file;
+        this.firstIds = firstIds;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.indexOffset = indexOffset;
+        this.lastId = lastId;
+    }
+
+    /**
+     * Writes the orders and their items into a new segment file
+     *
+     * @param file determines the segment file, it must not exist
+     * @param coffeeOrderList determines not empty list of orders
+     * @param coffeeOrderItemList determines the items of the orders
+     * @return the written segment
+     * @throws IOException if the file can't be written
+     */
+    public static ArchiveSegment write(Path file, List<CoffeeOrder> coffeeOrderList,
+                                       List<CoffeeOrderItem> coffeeOrderItemList) throws IOException {
+        List<CoffeeOrder> orders = new ArrayList<>(coffeeOrderList);
+        orders.sort(Comparator.comparingInt(CoffeeOrder::getId));
+        Map<Integer, List<CoffeeOrderItem>> itemsByOrderId = new HashMap<>();
+        for (CoffeeOrderItem item : coffeeOrderItemList) {
+            itemsByOrderId.computeIfAbsent(item.getOrderId(), orderId -> new ArrayList<>()).add(item);
+        }
+
+        int blockCount = (orders.size() + ORDERS_PER_BLOCK - 1) / ORDERS_PER_BLOCK;
+        int[] firstIds = new int[blockCount];
+        long[] offsets = new long[blockCount];
+        int[] lengths = new int[blockCount];
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Deflater deflater = new Deflater();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC));
+            for (int block = 0; block < blockCount; block++) {
+                List<CoffeeOrder> blockOrders = orders.subList(block * ORDERS_PER_BLOCK,
+                        Math.min((block + 1) * ORDERS_PER_BLOCK, orders.size()));
+                byte[] raw = encodeBlock(blockOrders, itemsByOrderId);
+                firstIds[block] = blockOrders.get(0).getId();
+                offsets[block] = channel.position();
+                lengths[block] = raw.length;
+                writeFully(channel, ByteBuffer.wrap(deflate(deflater, raw)));
+            }
+
+            long indexOffset = channel.position();
+            int lastId = orders.get(orders.size() - 1).getId();
+            ByteBuffer index = ByteBuffer.allocate(blockCount * INDEX_ENTRY_SIZE + FOOTER_SIZE);
+            for (int block = 0; block < blockCount; block++) {
+                index.putInt(firstIds[block]).putLong(offsets[block]).putInt(lengths[block]);
+            }
+            index.putLong(indexOffset).putInt(blockCount).putInt(lastId).putInt(MAGIC);
+            index.flip();
+            writeFully(channel, index);
+            channel.force(true);
+
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            return new ArchiveSegment(file, firstIds, offsets, lengths, indexOffset, lastId);
+        } finally {
+            deflater.end();
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads the index of a segment file
+     *
+     * @param file determines the segment file
+     * @return the segment
+     * @throws IOException if the file can't be read or it isn't a complete segment file
+     */
+    public static ArchiveSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + FOOTER_SIZE) {
+                throw new IOException("Not an order archive segment: " + file);
+            }
+            ByteBuffer footer = readFully(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            int blockCount = footer.getInt();
+            int lastId = footer.getInt();
+            if (footer.getInt() != MAGIC || indexOffset + (long) blockCount * INDEX_ENTRY_SIZE + FOOTER_SIZE != size) {
+                throw new IOException("Not an order archive segment: " + file);
+            }
+
+            ByteBuffer index = readFully(channel, indexOffset, blockCount * INDEX_ENTRY_SIZE);
+            int[] firstIds = new int[blockCount];
+            long[] offsets = new long[blockCount];
+            int[] lengths = new int[blockCount];
+            for (int block = 0; block < blockCount; block++) {
+                firstIds[block] = index.getInt();
+                offsets[block] = index.getLong();
+                lengths[block] = index.getInt();
+            }
+            return new ArchiveSegment(file, firstIds, offsets, lengths, indexOffset, lastId);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getFirstId() {
+        return firstIds.length == 0 ? 0 : firstIds[0];
+    }
+
+    public int getLastId() {
+        return lastId;
+    }
+
+    /**
+     * Finds the order in the segment
+     *
+     * @param id determines id of the order
+     * @param coffeeOrderItemList determines the list to add the items of the order to
+     * @return the order or null if there is no such order in the segment
+     * @throws IOException if the segment can't be read
+     */
+    public CoffeeOrder find(int id, List<CoffeeOrderItem> coffeeOrderItemList) throws IOException {
+        if (firstIds.length == 0 || id < firstIds[0] || id > lastId) {
+            return null;
+        }
+        int block = Arrays.binarySearch(firstIds, id);
+        if (block < 0) {
+            // the block with the greatest first id below id
+            block = -block - 2;
+        }
+        for (byte[] record : readBlock(block)) {
+            if (ByteBuffer.wrap(record).getInt() == id) {
+                return OrderWriteBehind.decode(record, coffeeOrderItemList);
+            }
+        }
+        return null;
+    }
+
+    private List<byte[]> readBlock(int block) throws IOException {
+        long end = block + 1 < offsets.length ? offsets[block + 1] : indexOffset;
+        ByteBuffer compressed;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            compressed = readFully(channel, offsets[block], (int) (end - offsets[block]));
+        }
+
+        byte[] raw = new byte[lengths[block]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            if (inflater.inflate(raw) != raw.length) {
+                throw new IOException("Corrupted block " + block + " of " + file);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted block " + block + " of " + file, e);
+        } finally {
+            inflater.end();
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        int count = in.readInt();
+        List<byte[]> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] record = new byte[in.readInt()];
+            in.readFully(record);
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static byte[] encodeBlock(List<CoffeeOrder> orders, Map<Integer, List<CoffeeOrderItem>> itemsByOrderId)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(orders.size() * 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(orders.size());
+        for (CoffeeOrder order : orders) {
+            byte[] record = OrderWriteBehind.encode(order,
+                    itemsByOrderId.getOrDefault(order.getId(), Collections.emptyList()));
+            out.writeInt(record.length);
+            out.write(record);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(Deflater deflater, byte[] raw) {
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return compressed.toByteArray();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + channel);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,192 @@
+package services.impl.archive;
+
+import dao.CoffeeOrderDao;
+import dao.CoffeeOrderItemDao;
+import db.ConnectionManager;
+import db.DbProperties;
+import db.TransactionTemplate;
+import entities.CoffeeOrder;
+import entities.CoffeeOrderItem;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Archive of the old orders in {@link ArchiveSegment} files of archive.dir.
+ * <p>
+ * If archive.enabled=true a background thread moves the orders older than archive.ageDays
+ * days with their items out of CoffeeOrder and CoffeeOrderItem every archive.intervalHours
+ * hours, a segment per archive.batchSize orders. The segment is written before the orders
+ * are deleted: a crash between the two leaves the orders in the database and in the segment,
+ * they are archived once more by the next run and found in the newer segment.
+ * <p>
+ * The segments of archive.dir are read even if the archiving is off,
+ * so the archived orders stay retrievable.
+ */
+@Component
+public class OrderArchive {
+    private static Logger log = Logger.getLogger(OrderArchive.class);
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final CoffeeOrderDao coffeeOrderDao;
+    private final CoffeeOrderItemDao coffeeOrderItemDao;
+    private final Path dir;
+    private final int batchSize;
+    // from old to new, the newer segment has the latest copy of an order
+    private final List<ArchiveSegment> segments = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService archiver;
+
+    @Autowired
+    public OrderArchive(CoffeeOrderDao coffeeOrderDao, CoffeeOrderItemDao coffeeOrderItemDao) {
+        this(coffeeOrderDao, coffeeOrderItemDao, Paths.get(DbProperties.getString("archive.dir",
+                Paths.get(System.getProperty("java.io.tmpdir"), "coffee_02", "archive").toString())),
+                DbProperties.getInt("archive.batchSize", 5000));
+    }
+
+    /**
+     * @param coffeeOrderDao determines the DAO of the orders to archive
+     * @param coffeeOrderItemDao determines the DAO of their items
+     * @param dir determines the directory of the segment files
+     * @param batchSize determines the maximum number of orders in a segment
+     */
+    OrderArchive(CoffeeOrderDao coffeeOrderDao, CoffeeOrderItemDao coffeeOrderItemDao, Path dir, int batchSize) {
+        this.coffeeOrderDao = coffeeOrderDao;
+        this.coffeeOrderItemDao = coffeeOrderItemDao;
+        this.dir = dir;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        load();
+        if (!DbProperties.getBoolean("archive.enabled", false)) {
+            return;
+        }
+        int ageDays = DbProperties.getInt("archive.ageDays", 365);
+        long interval = DbProperties.getLong("archive.intervalHours", 24);
+        archiver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        archiver.scheduleWithFixedDelay(() -> run(ageDays), 0, interval, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (archiver != null) {
+            archiver.shutdownNow();
+        }
+    }
+
+    /**
+     * Finds an archived order
+     *
+     * @param id determines id of the order
+     * @param coffeeOrderItemList determines the list to add the items of the order to
+     * @return the order or null if the order isn't archived
+     * @throws IOException if a segment can't be read
+     */
+    public CoffeeOrder get(int id, List<CoffeeOrderItem> coffeeOrderItemList) throws IOException {
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            List<CoffeeOrderItem> items = new ArrayList<>();
+            CoffeeOrder coffeeOrder = segments.get(i).find(id, items);
+            if (coffeeOrder != null) {
+                coffeeOrderItemList.addAll(items);
+                return coffeeOrder;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves the orders with order_date before orderDate and their items from the database
+     * to the archive, a segment and a transaction per batch
+     *
+     * @param orderDate determines the date the archived orders are older than
+     * @return the number of archived orders
+     * @throws SQLException if the orders can't be read or deleted
+     * @throws IOException if a segment can't be written
+     */
+    public synchronized int archiveOlderThan(Timestamp orderDate) throws SQLException, IOException {
+        int archived = 0;
+        try {
+            List<CoffeeOrder> orders = coffeeOrderDao.getOlderThan(orderDate, batchSize);
+            while (!orders.isEmpty()) {
+                List<Integer> ids = orders.stream().map(CoffeeOrder::getId).collect(Collectors.toList());
+                List<CoffeeOrderItem> items = coffeeOrderItemDao.getAllForOrderIds(ids);
+
+                Files.createDirectories(dir);
+                Path file = dir.resolve(String.format("orders-%010d-%d%s", ids.get(0), System.currentTimeMillis(),
+                        SEGMENT_SUFFIX));
+                segments.add(ArchiveSegment.write(file, orders, items));
+                delete(ids);
+                archived += orders.size();
+
+                orders = coffeeOrderDao.getOlderThan(orderDate, batchSize);
+            }
+        } finally {
+            ConnectionManager.releaseConnection();
+        }
+        return archived;
+    }
+
+    private void delete(List<Integer> ids) throws SQLException {
+        TransactionTemplate.inTransaction(false, TransactionTemplate.DEFAULT_ISOLATION, () -> {
+            coffeeOrderItemDao.deleteAllForOrderIds(ids);
+            return coffeeOrderDao.deleteAll(ids);
+        });
+    }
+
+    private void run(int ageDays) {
+        try {
+            int archived = archiveOlderThan(Timestamp.valueOf(LocalDateTime.now().minusDays(ageDays)));
+            if (archived > 0) {
+                log.info("Archived orders: " + archived);
+            }
+        } catch (SQLException | IOException e) {
+            log.error("Can't archive orders, will retry: " + e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Can't archive orders, will retry", e);
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        // by the write time in the name
+        files.sort((first, second) -> Long.compare(writeTime(first), writeTime(second)));
+        for (Path file : files) {
+            segments.add(ArchiveSegment.open(file));
+        }
+        log.info(String.format("Order archive %s: %d segments", dir, segments.size()));
+    }
+
+    private static long writeTime(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('-') + 1, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,236 @@
+package services.impl.commit;
+
+import dao.CoffeeOrderDao;
+import dao.CoffeeOrderItemDao;
+import db.ConnectionManager;
+import db.DbProperties;
+import db.TransactionTemplate;
+import entities.CoffeeOrder;
+import entities.CoffeeOrderItem;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group commit of the order saving, off unless groupCommit.enabled=true.
+ * <p>
+ * The calling threads put their orders in a queue and wait. A committer thread takes
+ * the orders arrived within groupCommit.maxWaitMillis after the first one, up to
+ * groupCommit.maxBatch orders, and saves them on one connection in one transaction:
+ * the orders pay for one commit together. If the transaction fails, the orders of it are
+ * saved one by one, so every caller gets the result of its own order.
+ * <p>
+ * Orders come with assigned ids, like in the write-behind mode.
+ */
+@Component
+public class OrderGroupCommit {
+    private static Logger log = Logger.getLogger(OrderGroupCommit.class);
+
+    private final CoffeeOrderDao coffeeOrderDao;
+    private final CoffeeOrderItemDao coffeeOrderItemDao;
+    private final boolean enabled;
+    private final long maxWaitNanos;
+    private final int maxBatch;
+    private final BlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong orderCount = new AtomicLong();
+    private final AtomicLong commitCount = new AtomicLong();
+    private volatile boolean running;
+    private Thread committer;
+
+    @Autowired
+    public OrderGroupCommit(CoffeeOrderDao coffeeOrderDao, CoffeeOrderItemDao coffeeOrderItemDao) {
+        this(coffeeOrderDao, coffeeOrderItemDao, DbProperties.getBoolean("groupCommit.enabled", false),
+                DbProperties.getLong("groupCommit.maxWaitMillis", 2),
+                DbProperties.getInt("groupCommit.maxBatch", 100));
+    }
+
+    /**
+     * @param coffeeOrderDao determines the DAO of the orders
+     * @param coffeeOrderItemDao determines the DAO of their items
+     * @param enabled determines whether the group commit is on
+     * @param maxWaitMillis determines how long the committer waits for more orders
+     *                      after the first one of a batch
+     * @param maxBatch determines the maximum number of orders in a transaction
+     */
+    OrderGroupCommit(CoffeeOrderDao coffeeOrderDao, CoffeeOrderItemDao coffeeOrderItemDao, boolean enabled,
+                     long maxWaitMillis, int maxBatch) {
+        this.coffeeOrderDao = coffeeOrderDao;
+        this.coffeeOrderItemDao = coffeeOrderItemDao;
+        this.enabled = enabled;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.maxBatch = maxBatch;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        committer = new Thread(this::commitLoop, "order-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (committer == null) {
+            return;
+        }
+        running = false;
+        try {
+            committer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // orders put after the committer has stopped
+        for (PendingOrder pending = queue.poll(); pending != null; pending = queue.poll()) {
+            pending.result.completeExceptionally(new SQLException("Order group commit is stopped"));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Saves the order and its items in the database in a transaction shared with
+     * the orders of other threads, waits until the transaction is committed
+     *
+     * @param coffeeOrder determines the order with assigned id
+     * @param coffeeOrderItemList determines the items of the order with assigned ids
+     * @return true if the order is saved or false if the group commit is off
+     * @throws SQLException if the order can't be saved
+     */
+    public boolean save(CoffeeOrder coffeeOrder, List<CoffeeOrderItem> coffeeOrderItemList) throws SQLException {
+        if (!running) {
+            return false;
+        }
+        PendingOrder pending = new PendingOrder(coffeeOrder, coffeeOrderItemList);
+        queue.add(pending);
+        if (!running && queue.remove(pending)) {
+            // stopped meanwhile, the order will never be taken
+            return false;
+        }
+        try {
+            pending.result.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for order commit: " + coffeeOrder.getId(), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Order can't be saved: " + coffeeOrder.getId(), e.getCause());
+        }
+    }
+
+    public long getOrderCount() {
+        return orderCount.get();
+    }
+
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+
+    private void commitLoop() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatch) {
+                    PendingOrder next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Order group commit failed", e);
+                for (PendingOrder pending : batch) {
+                    pending.result.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+                ConnectionManager.releaseConnection();
+            }
+        }
+    }
+
+    private void commit(List<PendingOrder> batch) {
+        try {
+            saveInTransaction(batch);
+            for (PendingOrder pending : batch) {
+                pending.result.complete(null);
+            }
+            return;
+        } catch (SQLException e) {
+            if (batch.size() == 1) {
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            log.warn("Order group commit of " + batch.size() + " orders failed, save them one by one: "
+                    + e.getMessage());
+        }
+        // find the failed orders, the others are saved
+        for (PendingOrder pending : batch) {
+            List<PendingOrder> single = new ArrayList<>(1);
+            single.add(pending);
+            try {
+                saveInTransaction(single);
+                pending.result.complete(null);
+            } catch (SQLException e) {
+                pending.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void saveInTransaction(List<PendingOrder> batch) throws SQLException {
+        TransactionTemplate.inTransaction(false, TransactionTemplate.DEFAULT_ISOLATION, () -> {
+            List<CoffeeOrder> orders = new ArrayList<>(batch.size());
+            List<CoffeeOrderItem> items = new ArrayList<>();
+            for (PendingOrder pending : batch) {
+                orders.add(pending.coffeeOrder);
+                items.addAll(pending.coffeeOrderItemList);
+            }
+            // one batch for all orders and one for all their items
+            coffeeOrderDao.saveAll(orders);
+            return coffeeOrderItemDao.saveAll(items);
+        });
+        orderCount.addAndGet(batch.size());
+        commitCount.incrementAndGet();
+    }
+
+    private static class PendingOrder {
+        private final CoffeeOrder coffeeOrder;
+        private final List<CoffeeOrderItem> coffeeOrderItemList;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        PendingOrder(CoffeeOrder coffeeOrder, List<CoffeeOrderItem> coffeeOrderItemList) {
+            this.coffeeOrder = coffeeOrder;
+            this.coffeeOrderItemList = coffeeOrderItemList;
+        }
+    }
+}
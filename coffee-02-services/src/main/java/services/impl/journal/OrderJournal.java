@@ -0,0 +1,220 @@
+package services.impl.journal;
+
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only ring journal in a memory-mapped file of fixed size.
+ * <p>
+ * The file starts with a header that keeps the position up to which the records
+ * are flushed, then go the records: [int length][int crc32 of payload][payload].
+ * A record with length 0 ends the journal. A record with a wrong crc is a torn write
+ * and ends the journal too. A record that doesn't fit before the end of the file is
+ * written at the beginning of the records, in the space freed by the flushed ones,
+ * and a length of -1 in place of it sends the reader there. So the journal takes new
+ * records while there are free bytes anywhere in the file, also under steady load
+ * when it is never empty.
+ */
+public class OrderJournal implements Closeable {
+    private static Logger log = Logger.getLogger(OrderJournal.class);
+    private static final int MAGIC = 0x434F4A31; // "COJ1"
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    // the next record is at the beginning of the records
+    private static final int WRAP = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final boolean sync;
+    private int flushedPosition;
+    private int writePosition;
+
+    /**
+     * Opens the journal file, creates it if there is no such file
+     *
+     * @param file determines the journal file
+     * @param capacity determines the size of the file in bytes
+     * @param sync determines whether to force every appended record to the disk
+     * @throws IOException if the file can't be opened or it isn't a journal file
+     */
+    public OrderJournal(Path file, int capacity, boolean sync) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, channel.size()));
+        this.sync = sync;
+
+        int magic = buffer.getInt(0);
+        if (magic == 0) {
+            writeHeader(HEADER_SIZE);
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.force();
+        } else if (magic != MAGIC) {
+            channel.close();
+            throw new IOException("Not an order journal: " + file);
+        }
+        flushedPosition = (int) buffer.getLong(8);
+        writePosition = flushedPosition;
+        boolean wrapped = false;
+        for (int position = flushedPosition; ; position = writePosition) {
+            // the journal wraps around once at most
+            if (!wrapped && buffer.getInt(position) == WRAP) {
+                position = HEADER_SIZE;
+                wrapped = true;
+            }
+            if (readRecord(position) == null) {
+                break;
+            }
+            writePosition = position + RECORD_HEADER_SIZE + buffer.getInt(position);
+        }
+        // cut a torn record off
+        if (writePosition + 4 <= buffer.capacity()) {
+            buffer.putInt(writePosition, 0);
+        }
+
+        log.info(String.format("Order journal %s: %d bytes not flushed", file, writePosition >= flushedPosition
+                ? writePosition - flushedPosition
+                : buffer.capacity() - flushedPosition + writePosition - HEADER_SIZE));
+    }
+
+    /**
+     * Appends a record to the journal
+     *
+     * @param payload determines the content of the record
+     * @return true if the record is appended or false if there is no space for it
+     */
+    public synchronized boolean append(byte[] payload) {
+        int length = RECORD_HEADER_SIZE + payload.length;
+        int position = writePosition;
+        // keep 4 bytes for the end of the journal, they must not reach not flushed records
+        int limit = writePosition >= flushedPosition ? buffer.capacity() : flushedPosition;
+        if (position + length + 4 > limit && limit == buffer.capacity()) {
+            position = HEADER_SIZE;
+            limit = flushedPosition;
+        }
+        if (position + length + 4 > limit) {
+            return false;
+        }
+        int end = position + length;
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        buffer.position(position + RECORD_HEADER_SIZE);
+        buffer.put(payload);
+        buffer.putInt(end, 0);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, payload.length);
+        if (position != writePosition) {
+            // the record is visible to the reader only now
+            buffer.putInt(writePosition, WRAP);
+        }
+        writePosition = end;
+        if (sync) {
+            buffer.force();
+        }
+        return true;
+    }
+
+    /**
+     * returns not flushed records from the oldest one
+     *
+     * @param maxRecords determines the maximum number of records
+     * @return a batch of records or empty batch if all records are flushed
+     */
+    public synchronized Batch pending(int maxRecords) {
+        List<byte[]> records = new ArrayList<>();
+        int position = flushedPosition;
+        while (position != writePosition && records.size() < maxRecords) {
+            if (buffer.getInt(position) == WRAP) {
+                position = HEADER_SIZE;
+            }
+            records.add(readRecord(position));
+            position += RECORD_HEADER_SIZE + buffer.getInt(position);
+        }
+        return new Batch(records, position);
+    }
+
+    /**
+     * Marks records up to the end of the batch as flushed, starts the journal
+     * from the beginning of the file if all records are flushed
+     *
+     * @param batch determines the flushed records
+     */
+    public synchronized void markFlushed(Batch batch) {
+        flushedPosition = batch.end;
+        if (flushedPosition == writePosition) {
+            // end the journal at the beginning first, then move the header there
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.force();
+            flushedPosition = writePosition = HEADER_SIZE;
+        }
+        writeHeader(flushedPosition);
+        buffer.force();
+    }
+
+    public synchronized boolean isEmpty() {
+        return flushedPosition == writePosition;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private void writeHeader(int flushedPosition) {
+        buffer.putInt(0, MAGIC);
+        buffer.putLong(8, flushedPosition);
+    }
+
+    private byte[] readRecord(int position) {
+        if (position + RECORD_HEADER_SIZE > buffer.capacity()) {
+            return null;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        ByteBuffer record = buffer.duplicate();
+        record.position(position + RECORD_HEADER_SIZE);
+        record.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == buffer.getInt(position + 4) ? payload : null;
+    }
+
+    /**
+     * Records read from the journal and the position after the last of them
+     */
+    public static class Batch {
+        private final List<byte[]> records;
+        private final int end;
+
+        private Batch(List<byte[]> records, int end) {
+            this.records = records;
+            this.end = end;
+        }
+
+        public List<byte[]> getRecords() {
+            return records;
+        }
+
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package services.impl.journal;
+
+import dao.CoffeeOrderDao;
+import dao.CoffeeOrderItemDao;
+import db.ConnectionManager;
+import db.DbProperties;
+import db.TransactionTemplate;
+import entities.CoffeeOrder;
+import entities.CoffeeOrderItem;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind mode of the order saving, off unless journal.enabled=true.
+ * <p>
+ * An order is appended to the {@link OrderJournal} and acknowledged at once. A background
+ * thread flushes the journal into CoffeeOrder and CoffeeOrderItem in large transactions.
+ * On start the orders left in the journal by the previous run are flushed first.
+ * <p>
+ * Orders come with assigned ids. A crash between the commit of a batch and the update
+ * of the journal header makes the batch be saved once more on the next start: the orders
+ * of it fail on the duplicate key and are skipped.
+ */
+@Component
+public class OrderWriteBehind {
+    private static Logger log = Logger.getLogger(OrderWriteBehind.class);
+    // SQLState class of the integrity constraint violation: the order can't be saved ever
+    private static final String INTEGRITY_CONSTRAINT_VIOLATION = "23";
+
+    private final CoffeeOrderDao coffeeOrderDao;
+    private final CoffeeOrderItemDao coffeeOrderItemDao;
+    private final boolean enabled;
+    private final int batchSize;
+    private OrderJournal journal;
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public OrderWriteBehind(CoffeeOrderDao coffeeOrderDao, CoffeeOrderItemDao coffeeOrderItemDao) {
+        this.coffeeOrderDao = coffeeOrderDao;
+        this.coffeeOrderItemDao = coffeeOrderItemDao;
+        this.enabled = DbProperties.getBoolean("journal.enabled", false);
+        this.batchSize = DbProperties.getInt("journal.batchSize", 500);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        String file = DbProperties.getString("journal.file",
+                Paths.get(System.getProperty("java.io.tmpdir"), "coffee_02", "orders.journal").toString());
+        journal = new OrderJournal(Paths.get(file), DbProperties.getInt("journal.sizeMb", 64) * 1024 * 1024,
+                DbProperties.getBoolean("journal.sync", true));
+
+        // replay orders of the previous run
+        flush();
+
+        long interval = DbProperties.getLong("journal.flushIntervalMillis", 200);
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (journal != null) {
+            flush();
+            journal.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Appends the order and its items to the journal, they will be saved in the database
+     * by the background thread
+     *
+     * @param coffeeOrder determines the order with assigned id and calculated cost
+     * @param coffeeOrderItemList determines the items of the order with assigned ids
+     * @return true if the order is in the journal or
+     *         false if the write-behind mode is off or the journal is full
+     */
+    public boolean append(CoffeeOrder coffeeOrder, List<CoffeeOrderItem> coffeeOrderItemList) {
+        return journal != null && journal.append(encode(coffeeOrder, coffeeOrderItemList));
+    }
+
+    /**
+     * Saves all orders of the journal in the database, a batch of journal.batchSize orders
+     * in one transaction. Stops at the first batch that can't be saved, it is tried again
+     * by the next flush.
+     */
+    public synchronized void flush() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            OrderJournal.Batch batch = journal.pending(batchSize);
+            while (!batch.isEmpty()) {
+                save(batch.getRecords());
+                journal.markFlushed(batch);
+                batch = journal.pending(batchSize);
+            }
+        } catch (SQLException e) {
+            log.error("Can't flush order journal, will retry: " + e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Can't flush order journal, will retry", e);
+        } finally {
+            ConnectionManager.releaseConnection();
+        }
+    }
+
+    private void save(List<byte[]> records) throws SQLException {
+        try {
+            saveInTransaction(records);
+        } catch (SQLException e) {
+            if (records.size() == 1 || !isIntegrityViolation(e)) {
+                throw e;
+            }
+            // find the broken orders and skip only them
+            for (byte[] record : records) {
+                try {
+                    saveInTransaction(Collections.singletonList(record));
+                } catch (SQLException recordError) {
+                    if (!isIntegrityViolation(recordError)) {
+                        throw recordError;
+                    }
+                    log.error("Skip order of journal that can't be saved: " + decodeToString(record)
+                            + " " + recordError.getMessage());
+                }
+            }
+        }
+    }
+
+    private void saveInTransaction(List<byte[]> records) throws SQLException {
+        TransactionTemplate.inTransaction(false, TransactionTemplate.DEFAULT_ISOLATION, () -> {
+            List<CoffeeOrder> orders = new ArrayList<>(records.size());
+            List<CoffeeOrderItem> items = new ArrayList<>();
+            for (byte[] record : records) {
+                orders.add(decode(record, items));
+            }
+            // one batch for all orders and one for all their items
+            coffeeOrderDao.saveAll(orders);
+            return coffeeOrderItemDao.saveAll(items);
+        });
+    }
+
+    private static boolean isIntegrityViolation(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith(INTEGRITY_CONSTRAINT_VIOLATION);
+    }
+
+    /**
+     * The record of an order in the journal, also used by the order archive
+     *
+     * @param coffeeOrder determines the order with assigned id
+     * @param coffeeOrderItemList determines the items of the order
+     * @return the record starting with the order id
+     */
+    public static byte[] encode(CoffeeOrder coffeeOrder, List<CoffeeOrderItem> coffeeOrderItemList) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(coffeeOrder.getId());
+            out.writeLong(coffeeOrder.getOrderDate().getTime());
+            out.writeBoolean(coffeeOrder.getCustomerName() != null);
+            if (coffeeOrder.getCustomerName() != null) {
+                out.writeUTF(coffeeOrder.getCustomerName());
+            }
+            out.writeUTF(coffeeOrder.getDeliveryAddress());
+            out.writeDouble(coffeeOrder.getCost());
+            out.writeInt(coffeeOrderItemList.size());
+            for (CoffeeOrderItem item : coffeeOrderItemList) {
+                out.writeInt(item.getId());
+                out.writeInt(item.getCoffeeTypeId());
+                out.writeInt(item.getQuantity());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param record determines the record made by encode
+     * @param coffeeOrderItemList determines the list to add the items of the order to
+     * @return the order of the record
+     */
+    public static CoffeeOrder decode(byte[] record, List<CoffeeOrderItem> coffeeOrderItemList) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            CoffeeOrder coffeeOrder = new CoffeeOrder();
+            coffeeOrder.setId(in.readInt());
+            coffeeOrder.setOrderDate(new Timestamp(in.readLong()));
+            coffeeOrder.setCustomerName(in.readBoolean() ? in.readUTF() : null);
+            coffeeOrder.setDeliveryAddress(in.readUTF());
+            coffeeOrder.setCost(in.readDouble());
+            int itemCount = in.readInt();
+            for (int i = 0; i < itemCount; i++) {
+                CoffeeOrderItem item = new CoffeeOrderItem();
+                item.setId(in.readInt());
+                item.setOrderId(coffeeOrder.getId());
+                item.setCoffeeTypeId(in.readInt());
+                item.setQuantity(in.readInt());
+                coffeeOrderItemList.add(item);
+            }
+            return coffeeOrder;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String decodeToString(byte[] record) {
+        List<CoffeeOrderItem> items = new ArrayList<>();
+        return decode(record, items) + " " + items;
+    }
+}
@@ -0,0 +1,18 @@
+package vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Parsed pricing configuration: every freeCupN cup of an order is free, delivery costs
+ * deliveryPrice and is free for orders with coffee cost more than freeDeliveryThreshold
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class PricingRules {
+    private final int freeCupN;
+    private final double freeDeliveryThreshold;
+    private final double deliveryPrice;
+}
@@ -143,4 +143,40 @@ public class CoffeeOrderServiceImplTest extends Assert {
             assertNull(configurationFromDB);
         }
     }
+
+    @Test
+    public void deleteAll() {
+        // make CoffeeType & save in Db
+        CoffeeType coffeeType = new CoffeeType();
+        coffeeType.setTypeName("Coffee1");
+        coffeeType.setPrice(3.0);
+        coffeeType.setDisabled(DisabledFlag.N);
+        coffeeType = coffeeTypeService.add(coffeeType);
+
+        // make 2 CoffeeOrders with 2 CoffeeOrderItems each
+        List<Integer> coffeeOrderIdList = new LinkedList<>();
+        for (int i = 0; i < 2; i++) {
+            List<CoffeeOrderItem> coffeeOrderItemList = new LinkedList<>();
+            for (int quantity = 1; quantity <= 2; quantity++) {
+                CoffeeOrderItem coffeeOrderItem = new CoffeeOrderItem();
+                coffeeOrderItem.setCoffeeTypeId(coffeeType.getId());
+                coffeeOrderItem.setQuantity(quantity);
+                coffeeOrderItemList.add(coffeeOrderItem);
+            }
+            CoffeeOrderAndCost coffeeOrder = coffeeOrderService.makeOrder("Petrov",
+                    "Street", coffeeOrderItemList);
+            coffeeOrderIdList.add(coffeeOrder.getCoffeeOrder().getId());
+        }
+
+        // delete CoffeeOrders & related to them CoffeeOrderItems
+        assertEquals(0, coffeeOrderService.deleteAll(null));
+        assertEquals(2, coffeeOrderService.deleteAll(coffeeOrderIdList));
+        for (int coffeeOrderId : coffeeOrderIdList) {
+            assertNull(coffeeOrderService.get(coffeeOrderId));
+            assertTrue(coffeeOrderItemService.getAllForOrderId(coffeeOrderId).isEmpty());
+        }
+
+        // delete saved CoffeeType
+        assertEquals(1, coffeeTypeService.delete(coffeeType.getId()));
+    }
 }
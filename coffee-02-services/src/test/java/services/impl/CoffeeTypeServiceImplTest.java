@@ -1,6 +1,7 @@
 package services.impl;
 
 
+import dao.CoffeeTypeDao;
 import entities.CoffeeType;
 import entities.enums.DisabledFlag;
 import org.junit.Assert;
@@ -10,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import services.CoffeeTypeService;
+import services.ConcurrentUpdateException;
 
 import java.util.List;
 
@@ -18,6 +20,8 @@ import java.util.List;
 public class CoffeeTypeServiceImplTest extends Assert {
     @Autowired
     private CoffeeTypeService service;
+    @Autowired
+    private CoffeeTypeDao coffeeTypeDao;
 
     @Test
     public void crudGetAll() {
@@ -107,4 +111,64 @@ public class CoffeeTypeServiceImplTest extends Assert {
         getIt = service.get(savedWhereFlagN.getId());
         assertNull(getIt);
     }
+
+    @Test
+    public void catalogSnapshot() throws Exception {
+        int size = service.getAll().size();
+
+        // saved past the service: not seen until the snapshot is reloaded
+        CoffeeType savedPastService = new CoffeeType();
+        savedPastService.setTypeName("Very fragrant coffee");
+        savedPastService.setPrice(1.0);
+        savedPastService.setDisabled(DisabledFlag.N);
+        savedPastService = coffeeTypeDao.save(savedPastService);
+        assertEquals(size, service.getAll().size());
+        assertNull(service.get(savedPastService.getId()));
+
+        // a change of the service reloads the snapshot
+        CoffeeType saved = new CoffeeType();
+        saved.setTypeName("Black coffee with cream");
+        saved.setPrice(3.0);
+        saved.setDisabled(DisabledFlag.N);
+        saved = service.add(saved);
+        assertEquals(size + 2, service.getAll().size());
+        assertEquals(savedPastService, service.get(savedPastService.getId()));
+        // an id of another number type finds the same record
+        assertEquals(savedPastService, service.get((long) savedPastService.getId()));
+
+        // copies are given out
+        service.get(saved.getId()).setPrice(100.0);
+        service.getAllForDisabledFlag(DisabledFlag.N).forEach(coffeeType -> coffeeType.setPrice(100.0));
+        assertEquals(3.0, service.get(saved.getId()).getPrice(), 0.00001);
+
+        assertEquals(1, service.delete(saved.getId()));
+        assertEquals(1, service.delete(savedPastService.getId()));
+        assertEquals(size, service.getAll().size());
+    }
+
+    @Test
+    public void conflictReloadsCatalog() throws Exception {
+        CoffeeType saved = new CoffeeType();
+        saved.setTypeName("Coffee changed elsewhere");
+        saved.setPrice(2.0);
+        saved.setDisabled(DisabledFlag.N);
+        saved = service.add(saved);
+
+        // changed by another instance, the snapshot still has the old version
+        CoffeeType changed = coffeeTypeDao.get(saved.getId());
+        changed.setPrice(2.5);
+        coffeeTypeDao.update(changed);
+        CoffeeType stale = service.get(saved.getId());
+        assertEquals(saved.getVersion(), stale.getVersion());
+
+        stale.setPrice(3.0);
+        try {
+            service.update(stale);
+            fail();
+        } catch (ConcurrentUpdateException e) {
+            // the conflict is resolved against the current row
+            assertEquals(changed.getVersion(), service.get(saved.getId()).getVersion());
+        }
+        assertEquals(1, service.delete(saved.getId()));
+    }
 }
@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import services.ConfigurationService;
+import vo.PricingRules;
 
 import java.sql.SQLException;
 
@@ -51,4 +52,33 @@ public class ConfigurationServiceImplTest extends Assert {
         Configuration configurationFromDB = configurationService.get(configuration.getId());
         assertNull(configurationFromDB);
     }
+
+    @Test
+    public void pricingRules() throws SQLException {
+        //delete configuration if exist
+        if (configurationService.get("x") != null) {
+            configurationService.delete("x");
+        }
+        // check default value
+        PricingRules pricingRules = configurationService.getPricingRules();
+        assertEquals(10.0, pricingRules.getFreeDeliveryThreshold(), 0.00001);
+        assertSame(pricingRules, configurationService.getPricingRules());
+
+        // the snapshot is replaced after add
+        Configuration configuration = new Configuration();
+        configuration.setId("x");
+        configuration.setValue("20.5");
+        configuration = configurationService.add(configuration);
+        assertEquals(20.5, configurationService.getPricingRules().getFreeDeliveryThreshold(), 0.00001);
+        assertEquals("20.5", configurationService.getValue("x"));
+
+        // invalid value, the default is used
+        configuration.setValue("abc");
+        configurationService.update(configuration);
+        assertEquals(10.0, configurationService.getPricingRules().getFreeDeliveryThreshold(), 0.00001);
+
+        // and after delete
+        assertEquals(1, configurationService.delete(configuration.getId()));
+        assertEquals(10.0, configurationService.getPricingRules().getFreeDeliveryThreshold(), 0.00001);
+    }
 }
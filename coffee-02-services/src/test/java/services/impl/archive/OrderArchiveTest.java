@@ -0,0 +1,71 @@
+package services.impl.archive;
+
+import dao.memory.InMemoryCoffeeOrderDao;
+import dao.memory.InMemoryCoffeeOrderItemDao;
+import entities.CoffeeOrder;
+import entities.CoffeeOrderItem;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class OrderArchiveTest extends Assert {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void archivedOrdersFound() throws Exception {
+        InMemoryCoffeeOrderDao coffeeOrderDao = new InMemoryCoffeeOrderDao();
+        InMemoryCoffeeOrderItemDao coffeeOrderItemDao = new InMemoryCoffeeOrderItemDao();
+        LocalDateTime now = LocalDateTime.now();
+        // more than a block per segment, and a segment with a part of a block
+        int oldOrders = ArchiveSegment.ORDERS_PER_BLOCK * 3 + 10;
+        for (int id = 1; id <= oldOrders + 5; id++) {
+            CoffeeOrder coffeeOrder = new CoffeeOrder();
+            coffeeOrder.setId(id);
+            coffeeOrder.setOrderDate(Timestamp.valueOf(id <= oldOrders ? now.minusDays(400) : now));
+            coffeeOrder.setCustomerName(id % 2 == 0 ? "Customer " + id : null);
+            coffeeOrder.setDeliveryAddress("Address " + id);
+            coffeeOrder.setCost(id * 1.5);
+            coffeeOrderDao.save(coffeeOrder);
+
+            CoffeeOrderItem item = new CoffeeOrderItem();
+            item.setId(id * 10);
+            item.setOrderId(id);
+            item.setCoffeeTypeId(1);
+            item.setQuantity(id % 5 + 1);
+            coffeeOrderItemDao.save(item);
+        }
+
+        Path dir = folder.getRoot().toPath();
+        OrderArchive archive = new OrderArchive(coffeeOrderDao, coffeeOrderItemDao, dir,
+                ArchiveSegment.ORDERS_PER_BLOCK * 2);
+        assertEquals(oldOrders, archive.archiveOlderThan(Timestamp.valueOf(now.minusDays(365))));
+        assertNull(coffeeOrderDao.get(1));
+        assertTrue(coffeeOrderItemDao.getAllForOrderId(1).isEmpty());
+        assertNotNull(coffeeOrderDao.get(oldOrders + 1));
+
+        // the segments are found after restart
+        OrderArchive restarted = new OrderArchive(coffeeOrderDao, coffeeOrderItemDao, dir, 1);
+        restarted.start();
+        for (int id : new int[]{1, ArchiveSegment.ORDERS_PER_BLOCK, ArchiveSegment.ORDERS_PER_BLOCK + 1, oldOrders}) {
+            List<CoffeeOrderItem> items = new ArrayList<>();
+            CoffeeOrder coffeeOrder = restarted.get(id, items);
+            assertEquals(id, coffeeOrder.getId());
+            assertEquals("Address " + id, coffeeOrder.getDeliveryAddress());
+            assertEquals(id % 2 == 0 ? "Customer " + id : null, coffeeOrder.getCustomerName());
+            assertEquals(id * 1.5, coffeeOrder.getCost(), 0.001);
+            assertEquals(1, items.size());
+            assertEquals(id * 10, items.get(0).getId());
+            assertEquals(id % 5 + 1, items.get(0).getQuantity());
+        }
+        assertNull(restarted.get(oldOrders + 1, new ArrayList<>()));
+        assertNull(restarted.get(0, new ArrayList<>()));
+    }
+}
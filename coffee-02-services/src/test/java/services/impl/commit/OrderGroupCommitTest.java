@@ -0,0 +1,119 @@
+package services.impl.commit;
+
+import dao.CoffeeOrderDao;
+import dao.CoffeeOrderItemDao;
+import dao.IdAllocator;
+import entities.CoffeeOrder;
+import entities.CoffeeOrderItem;
+import entities.CoffeeType;
+import entities.enums.DisabledFlag;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import services.CoffeeOrderService;
+import services.CoffeeTypeService;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@ContextConfiguration("/testContext-services.xml")
+@RunWith(SpringJUnit4ClassRunner.class)
+public class OrderGroupCommitTest extends Assert {
+    private static final int THREADS = 8;
+    private static final int ORDERS_PER_THREAD = 10;
+
+    @Autowired
+    private CoffeeOrderDao coffeeOrderDao;
+    @Autowired
+    private CoffeeOrderItemDao coffeeOrderItemDao;
+    @Autowired
+    private IdAllocator idAllocator;
+    @Autowired
+    private CoffeeOrderService coffeeOrderService;
+    @Autowired
+    private CoffeeTypeService coffeeTypeService;
+
+    @Test
+    public void concurrentOrdersCommittedTogether() throws Exception {
+        CoffeeType coffeeType = new CoffeeType();
+        coffeeType.setTypeName("Coffee1");
+        coffeeType.setPrice(3.0);
+        coffeeType.setDisabled(DisabledFlag.N);
+        coffeeType = coffeeTypeService.add(coffeeType);
+        int coffeeTypeId = coffeeType.getId();
+
+        OrderGroupCommit groupCommit = new OrderGroupCommit(coffeeOrderDao, coffeeOrderItemDao, true, 20, 100);
+        groupCommit.start();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Integer> coffeeOrderIdList = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                        CoffeeOrder coffeeOrder = newOrder();
+                        assertTrue(groupCommit.save(coffeeOrder, newItems(coffeeOrder, coffeeTypeId)));
+                        coffeeOrderIdList.add(coffeeOrder.getId());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertEquals(THREADS * ORDERS_PER_THREAD, groupCommit.getOrderCount());
+            assertTrue(groupCommit.getCommitCount() < groupCommit.getOrderCount());
+            for (int coffeeOrderId : coffeeOrderIdList) {
+                assertNotNull(coffeeOrderDao.get(coffeeOrderId));
+                assertEquals(1, coffeeOrderItemDao.getAllForOrderId(coffeeOrderId).size());
+            }
+
+            // a failed order fails only its caller
+            CoffeeOrder saved = coffeeOrderDao.get(coffeeOrderIdList.get(0));
+            CoffeeOrder coffeeOrder = newOrder();
+            Future<?> duplicate = executor.submit(() -> groupCommit.save(saved, Collections.emptyList()));
+            assertTrue(groupCommit.save(coffeeOrder, newItems(coffeeOrder, coffeeTypeId)));
+            coffeeOrderIdList.add(coffeeOrder.getId());
+            try {
+                duplicate.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof SQLException);
+            }
+            assertNotNull(coffeeOrderDao.get(coffeeOrder.getId()));
+        } finally {
+            executor.shutdown();
+            groupCommit.stop();
+            coffeeOrderService.deleteAll(coffeeOrderIdList);
+            coffeeTypeService.delete(coffeeTypeId);
+        }
+    }
+
+    private CoffeeOrder newOrder() throws SQLException {
+        CoffeeOrder coffeeOrder = new CoffeeOrder();
+        coffeeOrder.setId(idAllocator.nextId(IdAllocator.COFFEE_ORDER));
+        coffeeOrder.setOrderDate(new Timestamp(System.currentTimeMillis() / 1000 * 1000));
+        coffeeOrder.setDeliveryAddress("Street");
+        coffeeOrder.setCost(3.0);
+        return coffeeOrder;
+    }
+
+    private List<CoffeeOrderItem> newItems(CoffeeOrder coffeeOrder, int coffeeTypeId) throws SQLException {
+        CoffeeOrderItem item = new CoffeeOrderItem();
+        item.setId(idAllocator.nextId(IdAllocator.COFFEE_ORDER_ITEM));
+        item.setOrderId(coffeeOrder.getId());
+        item.setCoffeeTypeId(coffeeTypeId);
+        item.setQuantity(1);
+        return Collections.singletonList(item);
+    }
+}
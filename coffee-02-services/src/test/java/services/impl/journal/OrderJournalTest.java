@@ -0,0 +1,110 @@
+package services.impl.journal;
+
+import entities.CoffeeOrder;
+import entities.CoffeeOrderItem;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class OrderJournalTest extends Assert {
+    private static final int CAPACITY = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replayAfterReopen() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("orders.journal");
+        try (OrderJournal journal = new OrderJournal(file, CAPACITY, true)) {
+            assertTrue(journal.append(new byte[]{1}));
+            assertTrue(journal.append(new byte[]{2, 2}));
+            OrderJournal.Batch batch = journal.pending(1);
+            assertEquals(1, batch.getRecords().size());
+            journal.markFlushed(batch);
+            assertTrue(journal.append(new byte[]{3, 3, 3}));
+        }
+
+        // not flushed records are read again, a torn record is cut off
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(16 + 9 + 10 + 11);
+            raf.writeInt(5);
+        }
+        try (OrderJournal journal = new OrderJournal(file, CAPACITY, true)) {
+            List<byte[]> records = journal.pending(10).getRecords();
+            assertEquals(2, records.size());
+            assertArrayEquals(new byte[]{2, 2}, records.get(0));
+            assertArrayEquals(new byte[]{3, 3, 3}, records.get(1));
+        }
+    }
+
+    @Test
+    public void reusedWhenFlushed() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("orders.journal");
+        try (OrderJournal journal = new OrderJournal(file, CAPACITY, false)) {
+            byte[] payload = new byte[CAPACITY / 3];
+            assertTrue(journal.append(payload));
+            assertTrue(journal.append(payload));
+            assertFalse(journal.append(payload));
+
+            journal.markFlushed(journal.pending(10));
+            assertTrue(journal.isEmpty());
+            assertTrue(journal.append(payload));
+        }
+    }
+
+    @Test
+    public void wrapsAroundWhenNeverEmpty() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("orders.journal");
+        byte[] payload = new byte[CAPACITY / 5];
+        try (OrderJournal journal = new OrderJournal(file, CAPACITY, false)) {
+            payload[0] = 0;
+            assertTrue(journal.append(payload));
+            // one record is always left not flushed, the journal goes round the file several times
+            for (byte next = 1; next < 20; next++) {
+                payload[0] = next;
+                assertTrue(journal.append(payload));
+                OrderJournal.Batch batch = journal.pending(1);
+                assertEquals(next - 1, batch.getRecords().get(0)[0]);
+                journal.markFlushed(batch);
+                assertFalse(journal.isEmpty());
+            }
+            payload[0] = 20;
+            assertTrue(journal.append(payload));
+        }
+
+        // the records after the wrap are read again
+        try (OrderJournal journal = new OrderJournal(file, CAPACITY, true)) {
+            List<byte[]> records = journal.pending(10).getRecords();
+            assertEquals(2, records.size());
+            assertEquals(19, records.get(0)[0]);
+            assertEquals(20, records.get(1)[0]);
+        }
+    }
+
+    @Test
+    public void encodeDecode() {
+        CoffeeOrder coffeeOrder = new CoffeeOrder();
+        coffeeOrder.setOrderDate(new Timestamp(System.currentTimeMillis()));
+        coffeeOrder.setDeliveryAddress("TEST Street");
+        coffeeOrder.setCost(12.5);
+        CoffeeOrderItem item = new CoffeeOrderItem();
+        item.setCoffeeTypeId(3);
+        item.setQuantity(2);
+
+        List<CoffeeOrderItem> items = new ArrayList<>();
+        CoffeeOrder decoded = OrderWriteBehind.decode(
+                OrderWriteBehind.encode(coffeeOrder, Collections.singletonList(item)), items);
+
+        assertEquals(coffeeOrder, decoded);
+        assertEquals(Collections.singletonList(item), items);
+    }
+}
@@ -9,6 +9,7 @@ public enum CommandType {
     ORDERS("orders/main.jsp", "Orders", "orders.title", "ordersController"),
     DELIVERY("orders/deliveryOrder.jsp", "Delivery", "orders.title", "ordersDeliveryController"),
     ORDERS_SHOW("orders/showOrder.jsp", "ShowOrder", "orders.title", "ordersShowController"),
+    ORDERS_HISTORY("orders/history.jsp", "OrdersHistory", "history.title", "ordersHistoryController"),
     COFFEE("coffee/main.jsp", "Coffee", "coffee.title", "coffeeController"),
     COFFEE_CHANGE("coffee/changeCoffee.jsp", "changeCoffee", "coffee.title", "coffeeChangeController"),
     COFFEE_ADD("coffee/addCoffee.jsp", "addCoffee", "coffee.title", "coffeeAddController"),
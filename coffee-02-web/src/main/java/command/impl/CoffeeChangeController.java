@@ -6,6 +6,7 @@ import entities.enums.DisabledFlag;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import services.CoffeeTypeService;
+import services.ConcurrentUpdateException;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -62,7 +63,23 @@ public class CoffeeChangeController implements Controller {
         } else {
             if ( typeName != null && price != DEFAULT_PRICE && coffeeTypeFromSession != null) {
                 // income parameters are valid, update CoffeeType in Db
-                coffeeTypeService.update(coffeeTypeFromSession);
+                try {
+                    coffeeTypeService.update(coffeeTypeFromSession);
+                } catch (ConcurrentUpdateException e) {
+                    // CoffeeType was changed by another user while it was in session,
+                    // show the current one from Db to be changed again
+                    CoffeeType coffeeTypeFromDb = coffeeTypeService.get(coffeeTypeFromSession.getId());
+                    if (coffeeTypeFromDb == null) {
+                        // CoffeeType was deleted -> refer to CoffeeType list
+                        req.getSession().removeAttribute("coffeeTypeForChange");
+                        req.getRequestDispatcher("/frontController?command=coffee").forward(req, resp);
+                    } else {
+                        req.getSession().setAttribute("coffeeTypeForChange", coffeeTypeFromDb);
+                        req.setAttribute("coffeeChangeConflictMsg", "Changed by another user");
+                        req.getRequestDispatcher(MAIN_PAGE).forward(req, resp);
+                    }
+                    return;
+                }
 
                 // save in request
                 req.setAttribute("afterChange", "on");
@@ -5,6 +5,7 @@ import entities.Configuration;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import services.ConfigurationService;
+import vo.PricingRules;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -25,11 +26,14 @@ public class ConfigurationController implements Controller {
         // del after debug
         System.out.println("start ConfigurationController");
 
+        // pricing configuration from Db or default values
+        PricingRules pricingRules = configurationService.getPricingRules();
+
         // check freeCup
         int freeCup = NumberUtils.toInt(req.getParameter("freeCup"), DEFAULT_FREE_CUP);
         if (freeCup < 1) {
             // use value from Db or default free cup value
-            freeCup = Integer.valueOf(configurationService.getValue("n"));
+            freeCup = pricingRules.getFreeCupN();
 
         } else {
             // check exist "n" configuration in Db
@@ -42,7 +46,7 @@ public class ConfigurationController implements Controller {
         double freeDelivery = NumberUtils.toDouble(req.getParameter("freeDelivery"), DEFAULT_DELIVERY);
         if (freeDelivery < 0) {
             // use value from Db or default value
-            freeDelivery = Double.valueOf(configurationService.getValue("x"));
+            freeDelivery = pricingRules.getFreeDeliveryThreshold();
 
         } else {
             // check exist "x" configuration in Db
@@ -55,7 +59,7 @@ public class ConfigurationController implements Controller {
         double deliveryPrice = NumberUtils.toDouble(req.getParameter("deliveryPrice"), DEFAULT_DELIVERY);
         if (deliveryPrice < 0) {
             // use value from Db or default value
-            deliveryPrice = Double.valueOf(configurationService.getValue("m"));
+            deliveryPrice = pricingRules.getDeliveryPrice();
 
         } else {
             // check exist "m" configuration in Db
@@ -30,14 +30,11 @@ public class OrdersController implements Controller {
         // del after debug
         System.out.println("start OrdersController");
 
-        // get number of freeCup from Db
-        String freeCup = configurationService.getValue("n");
-        if (freeCup != null) {
-            // save freeCup in session
-            req.getSession().setAttribute("freeCup", freeCup);
-        }
+        // get number of freeCup and coffeeType list where DisabledFlag.N for UI,
+        // both are served from the snapshots of the services
+        // save freeCup in session
+        req.getSession().setAttribute("freeCup", configurationService.getPricingRules().getFreeCupN());
 
-        // get coffeeType list from Db where DisabledFlag.N for UI
         List<CoffeeType> coffeeTypeList = coffeeTypeService.getAllForDisabledFlag(DisabledFlag.N);
 
         // save coffeeTypeList in request
@@ -0,0 +1,45 @@
+package command.impl;
+
+import command.Controller;
+import entities.CoffeeOrder;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import services.CoffeeOrderService;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.List;
+
+@org.springframework.stereotype.Controller
+public class OrdersHistoryController implements Controller {
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private CoffeeOrderService coffeeOrderService;
+
+    @Override
+    public void execute(HttpServletRequest req, HttpServletResponse resp)
+            throws IOException, ServletException {
+        // the page starts after the order with key (beforeDate, beforeId), the first page has no key
+        long beforeDate = NumberUtils.toLong(req.getParameter("beforeDate"), 0);
+        int beforeId = NumberUtils.toInt(req.getParameter("beforeId"), 0);
+        Timestamp orderDate = beforeDate > 0 ? new Timestamp(beforeDate) : null;
+
+        // one extra order shows whether there is the next page
+        List<CoffeeOrder> coffeeOrderList = coffeeOrderService.getHistoryPage(orderDate, beforeId, PAGE_SIZE + 1);
+        if (coffeeOrderList.size() > PAGE_SIZE) {
+            coffeeOrderList = coffeeOrderList.subList(0, PAGE_SIZE);
+            CoffeeOrder last = coffeeOrderList.get(PAGE_SIZE - 1);
+            req.setAttribute("nextBeforeDate", last.getOrderDate().getTime());
+            req.setAttribute("nextBeforeId", last.getId());
+        }
+        req.setAttribute("coffeeOrderList", coffeeOrderList);
+        req.setAttribute("firstPage", orderDate == null);
+
+        // refer to MAIN_PAGE
+        req.getRequestDispatcher(MAIN_PAGE).forward(req, resp);
+    }
+}
@@ -0,0 +1,34 @@
+package filters;
+
+import db.ConnectionManager;
+import db.ConnectionScope;
+
+import javax.servlet.*;
+import javax.servlet.annotation.WebFilter;
+import java.io.IOException;
+
+@WebFilter(filterName = "connectionScopeFilter", urlPatterns = "/*")
+public class ConnectionScopeFilter implements Filter {
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+
+    }
+
+    /**
+     * Binds a database connection to the request thread on first use and returns it
+     * to the pool when the request is finished.
+     */
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse,
+                         FilterChain filterChain) throws IOException, ServletException {
+
+        try (ConnectionScope scope = ConnectionManager.openScope()) {
+            filterChain.doFilter(servletRequest, servletResponse);
+        }
+    }
+
+    @Override
+    public void destroy() {
+
+    }
+}
@@ -10,6 +10,9 @@
 <c:if test="${not empty requestScope.coffeeChangeErrorMsg}">
     <div class="col-sm-12 error"><fmt:message bundle="${i18n}" key="coffee.errorMsg"/></div>
 </c:if>
+<c:if test="${not empty requestScope.coffeeChangeConflictMsg}">
+    <div class="col-sm-12 error"><fmt:message bundle="${i18n}" key="coffee.conflictMsg"/></div>
+</c:if>
 
 <form class="form-horizontal" action="frontController?command=changeCoffee" method="post">
     <div class="form-group">
@@ -0,0 +1,38 @@
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<%@ taglib prefix="fmt" uri="http://java.sun.com/jsp/jstl/fmt" %>
+
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+
+<fmt:setLocale value="${sessionScope.locale}"/>
+<fmt:setBundle basename="messages" var="i18n"/>
+
+<div class="col-sm-12 tableHeader"><i class="glyphicon glyphicon-list-alt"></i><fmt:message bundle="${i18n}" key="history.title"/></div>
+<c:if test="${empty requestScope.coffeeOrderList}">
+    <div class="col-sm-12 approve"><fmt:message bundle="${i18n}" key="history.empty"/></div>
+</c:if>
+
+<table class="table table-striped table-hover table-condensed">
+    <tr>
+        <th class="col-sm-3 gumHeader"><fmt:message bundle="${i18n}" key="history.orderDate"/></th>
+        <th class="col-sm-3 gumHeader"><fmt:message bundle="${i18n}" key="orders.customerName"/></th>
+        <th class="col-sm-4 gumHeader"><fmt:message bundle="${i18n}" key="orders.deliveryAddress"/></th>
+        <th class="col-sm-2 gumHeader"><fmt:message bundle="${i18n}" key="orders.total"/></th>
+    </tr>
+    <c:forEach var="coffeeOrder" items="${requestScope.coffeeOrderList}" varStatus="status">
+        <tr class="info gumRow">
+            <td class="col-sm-3 Center"><fmt:formatDate value="${coffeeOrder.orderDate}" type="both" /></td>
+            <td class="col-sm-3 Left"><c:out value="${coffeeOrder.customerName}"/></td>
+            <td class="col-sm-4 Left"><c:out value="${coffeeOrder.deliveryAddress}"/></td>
+            <td class="col-sm-2 Right"><fmt:formatNumber value="${coffeeOrder.cost}" minFractionDigits="2" maxFractionDigits="2" type="number"/> TGR</td>
+        </tr>
+    </c:forEach>
+</table>
+
+<div style="text-align: center">
+    <c:if test="${not requestScope.firstPage}">
+        <a href="frontController?command=ordersHistory" class="buttonRefer"><fmt:message bundle="${i18n}" key="history.refer.first"/></a>
+    </c:if>
+    <c:if test="${not empty requestScope.nextBeforeId}">
+        <a href="frontController?command=ordersHistory&beforeDate=${requestScope.nextBeforeDate}&beforeId=${requestScope.nextBeforeId}" class="buttonRefer"><fmt:message bundle="${i18n}" key="history.refer.older"/></a>
+    </c:if>
+</div>
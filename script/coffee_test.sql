@@ -17,6 +17,8 @@ create table CoffeeType (
   primary key (id)
 ) engine=InnoDB;
 
+-- CT_I и CO_I1 удаляются миграцией V1, дальнейшие изменения схемы - только миграциями
+-- (coffee-02-dao/src/main/resources/db/migration), они применяются при старте приложения
 create index CT_I on CoffeeType (
   id asc
 );